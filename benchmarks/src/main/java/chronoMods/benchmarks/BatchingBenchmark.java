@@ -0,0 +1,42 @@
+package chronoMods.benchmarks;
+
+import chronoMods.network.BufferPool;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.PacketBatcher;
+import chronoMods.network.loopback.LoopbackIntegration;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// One frame of outgoing traffic: queue small messages, batch them and pump them to a service with no lobby,
+// so the cost measured is batching, pooling and the ring rather than any transport.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchingBenchmark {
+
+	@Param({"1", "8", "64", "512"})
+	public int messages;
+
+	@Param({"24", "200"})
+	public int messageSize;
+
+	PacketBatcher batcher = new PacketBatcher();
+	LoopbackIntegration service = new LoopbackIntegration();
+
+	@Benchmark
+	public void queueFlushPump() {
+		for (int i = 0; i < messages; i++) {
+			ByteBuffer data = BufferPool.acquire(messageSize);
+			data.putInt(NetworkHelper.dataType.State.ordinal());
+			batcher.queue(data);
+		}
+
+		batcher.flush(service);
+		NetworkHelper.network.pump(service);
+	}
+}
@@ -0,0 +1,87 @@
+package chronoMods.benchmarks;
+
+import chronoMods.TogetherManager;
+import chronoMods.bingo.Caller;
+import chronoMods.network.RemotePlayer;
+import chronoMods.network.loopback.Headless;
+import chronoMods.network.loopback.LoopbackIntegration;
+import chronoMods.ui.hud.BingoPlayerWidget;
+import chronoMods.ui.hud.TopPanelPlayerPanels;
+import com.badlogic.gdx.graphics.Texture;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// The bingo card checks run for every mark that arrives: marking the card for a whole team, counting marks and looking for a line.
+// Cards are half full with no line yet, the common case mid game, so isWin has to look at every line.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BingoBenchmark {
+
+	@Param({"1", "4"})
+	public int teamSize;
+
+	LoopbackIntegration integration = new LoopbackIntegration();
+	RemotePlayer player;
+	Texture mark;
+	int rule;
+
+	@Setup
+	public void setup() {
+		Headless.start();
+		TogetherManager.gameMode = TogetherManager.mode.Bingo;
+
+		integration.peerCount = teamSize - 1;
+		TogetherManager.currentUser = integration.makeCurrentUser();
+		integration.createLobby(TogetherManager.gameMode);
+
+		mark = Headless.texture();
+		for (RemotePlayer p : TogetherManager.players) {
+			for (int x = 0; x < 5; x++) {
+				for (int y = 0; y < 5; y++) {
+					p.bingoCardIndices[x][y] = x * 5 + y;
+					// A checkerboard, so every row, column and diagonal is broken
+					p.bingoCard[x][y] = (x + y) % 2 == 0 && !(x == 2 && y == 2) ? mark : null;
+				}
+			}
+		}
+
+		TopPanelPlayerPanels.playerWidgets.clear();
+		TopPanelPlayerPanels.playerWidgets.add(new BingoPlayerWidget(new ArrayList(TogetherManager.players)));
+
+		player = TogetherManager.players.get(0);
+		// The centre square, which isn't marked
+		rule = 12;
+	}
+
+	@TearDown
+	public void tearDown() {
+		TopPanelPlayerPanels.playerWidgets.clear();
+		integration.dispose();
+		TogetherManager.currentLobby = null;
+	}
+
+	@Benchmark
+	public int isWin() {
+		return Caller.isWin(player.bingoCard);
+	}
+
+	@Benchmark
+	public int countMarks() {
+		return Caller.countMarks(player.bingoCard);
+	}
+
+	// Marks the centre square for the whole team, then clears it again so every call does the work
+	@Benchmark
+	public boolean markCard() {
+		boolean marked = Caller.markCard(player, rule);
+		for (RemotePlayer p : TogetherManager.players)
+			p.bingoCard[2][2] = null;
+		return marked;
+	}
+}
@@ -0,0 +1,87 @@
+package chronoMods.benchmarks;
+
+import chronoMods.network.BufferPool;
+import chronoMods.network.CardDataBuffer;
+import chronoMods.network.CardDictionary;
+import chronoMods.network.loopback.Headless;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// CardDataBuffer write and read, binary for plain, merged and infused cards, and the JSON fallback for unknown IDs.
+// The dictionary is built by CardDictionary.build() from a Headless CardLibrary and infusion sets, the same as in game.
+// Merge cards aren't in the library there either, so they exercise the merged format rather than a dictionary entry.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardDataBufferBenchmark {
+
+	CardDataBuffer plain, merged, infused, unknown;
+
+	@Setup
+	public void setup() {
+		Headless.start();
+
+		ArrayList<String> cards = new ArrayList();
+		for (int i = 0; i < 1500; i++)
+			cards.add("Card" + i);
+		cards.addAll(Arrays.asList("Strike_R", "Defend_R", "Bash", "Whirlwind"));
+		Headless.library(cards);
+		Headless.infusionSets(AbstractPlayer.PlayerClass.IRONCLAD, "Ironclad");
+		Headless.infusionSets(AbstractPlayer.PlayerClass.THE_SILENT, "Silent");
+		Headless.infusionSets(AbstractPlayer.PlayerClass.DEFECT, "Defect");
+		Headless.infusionSets(AbstractPlayer.PlayerClass.WATCHER, "Watcher");
+		CardDictionary.build();
+
+		plain = card("Bash", 1, 0);
+		merged = card("MergeCard", 0, 0);
+		merged.mergeCardID = "Strike_R;Defend_R;Whirlwind";
+		infused = card("Whirlwind", 1, 0);
+		infused.iSet = "Ironclad";
+		infused.iIndex = 3;
+		unknown = card("SomeOtherMod:Card", 2, 12);
+	}
+
+	private static CardDataBuffer card(String id, int upgrades, int misc) {
+		CardDataBuffer card = new CardDataBuffer();
+		card.cardID = id;
+		card.timesUpgraded = upgrades;
+		card.misc = misc;
+		return card;
+	}
+
+	@Benchmark
+	public CardDataBuffer plainRoundTrip() {
+		return roundTrip(plain);
+	}
+
+	@Benchmark
+	public CardDataBuffer mergedRoundTrip() {
+		return roundTrip(merged);
+	}
+
+	@Benchmark
+	public CardDataBuffer infusedRoundTrip() {
+		return roundTrip(infused);
+	}
+
+	@Benchmark
+	public CardDataBuffer jsonFallbackRoundTrip() {
+		return roundTrip(unknown);
+	}
+
+	private static CardDataBuffer roundTrip(CardDataBuffer card) {
+		ByteBuffer data = ByteBuffer.allocate(card.getBufferSize());
+		card.write(data);
+		((Buffer)data).rewind();
+		return CardDataBuffer.read(data);
+	}
+}
@@ -0,0 +1,79 @@
+package chronoMods.benchmarks;
+
+import chronoMods.network.BufferPool;
+import chronoMods.network.PlayerState;
+import chronoMods.network.codec.DrawMapStrokeCodec;
+import chronoMods.network.codec.PacketCodec;
+import chronoMods.network.codec.PingCodec;
+import chronoMods.network.codec.PlayerStateCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Encode and decode of the codec message types. capture and apply need a running game, so messages are filled by hand.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	PlayerStateCodec state = new PlayerStateCodec();
+	DrawMapStrokeCodec stroke = new DrawMapStrokeCodec();
+	PingCodec ping = new PingCodec();
+
+	@Setup
+	public void setup() {
+		state.outgoing.mask = PlayerState.ALL;
+		for (int i = 0; i < PlayerState.FIELDS; i++)
+			state.outgoing.values[i] = 37 * i - 50;
+
+		stroke.outgoing.count = 64;
+		stroke.outgoing.brushSize = 4f;
+		for (int i = 0; i < stroke.outgoing.count; i++) {
+			stroke.outgoing.xs[i] = 30000 + i * 40;
+			stroke.outgoing.ys[i] = 20000 - i * 25;
+		}
+
+		ping.outgoing.pinger = 76561198000000000L;
+		ping.outgoing.sentNanos = System.nanoTime();
+	}
+
+	@Benchmark
+	public Object playerStateRoundTrip() {
+		return roundTrip(state);
+	}
+
+	@Benchmark
+	public Object playerStateHealthOnly() {
+		state.outgoing.mask = PlayerState.HEALTH;
+		Object result = roundTrip(state);
+		state.outgoing.mask = PlayerState.ALL;
+		return result;
+	}
+
+	@Benchmark
+	public Object drawMapStrokeRoundTrip() {
+		return roundTrip(stroke);
+	}
+
+	@Benchmark
+	public Object pingRoundTrip() {
+		return roundTrip(ping);
+	}
+
+	private static <T> T roundTrip(PacketCodec<T> codec) {
+		ByteBuffer data = BufferPool.acquire(PacketCodec.HEADER_SIZE + codec.size(codec.outgoing));
+		data.putInt(codec.type.ordinal());
+		codec.encode(codec.outgoing, data);
+
+		((Buffer)data).position(PacketCodec.HEADER_SIZE);
+		codec.decode(data, codec.incoming);
+		BufferPool.release(data);
+
+		return codec.incoming;
+	}
+}
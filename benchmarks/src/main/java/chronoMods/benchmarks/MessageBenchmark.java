@@ -0,0 +1,132 @@
+package chronoMods.benchmarks;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.BufferPool;
+import chronoMods.network.CardDictionary;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.PlayerState;
+import chronoMods.network.RemotePlayer;
+import chronoMods.network.SendDataPatches;
+import chronoMods.network.codec.PacketCodec;
+import chronoMods.network.codec.PacketCodecs;
+import chronoMods.network.loopback.Headless;
+import chronoMods.network.loopback.LoopbackIntegration;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.helpers.CardLibrary;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// The whole send and receive path of one message type in a lobby: NetworkHelper.sendData captures and encodes it,
+// NetworkHelper.parseData decodes it and applies it to the sender's RemotePlayer. Runs on Headless.
+// Only the types that can be captured and applied without a dungeon are here. The rest need rooms, screens or
+// monsters that Headless doesn't build, so CodecBenchmark covers what of them is codec work.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+
+	@Param({"State", "Ready", "Version", "Ping", "Interest", "Splits", "BingoCard", "DeckInfo", "DeckRequest", "DeckSnapshot"})
+	public String type;
+
+	@Param({"6", "50", "200"})
+	public int players;
+
+	@Param({"30"})
+	public int deckSize;
+
+	LoopbackIntegration integration = new LoopbackIntegration();
+	NetworkHelper.dataType dataType;
+	RemotePlayer sender;
+	AbstractCard deckCard;
+
+	byte[] message;
+	// DeckInfo that takes the added card back out again, so the sender's deck doesn't grow
+	byte[] undo;
+
+	@Setup
+	public void setup() {
+		Headless.start();
+		dataType = NetworkHelper.dataType.valueOf(type);
+
+		ArrayList<String> cards = new ArrayList();
+		for (int i = 0; i < 1500; i++)
+			cards.add("Card" + i);
+		Headless.library(cards);
+		CardDictionary.build();
+
+		TogetherManager.gameMode = TogetherManager.mode.Versus;
+		integration.peerCount = players - 1;
+		TogetherManager.currentUser = integration.makeCurrentUser();
+		integration.createLobby(TogetherManager.gameMode);
+		for (RemotePlayer player : TogetherManager.players)
+			player.cardDictionaryHash = CardDictionary.getHash();
+		CardDictionary.invalidate();
+
+		AbstractDungeon.player = Headless.player();
+		for (int i = 0; i < deckSize; i++)
+			AbstractDungeon.player.masterDeck.addToBottom(CardLibrary.getCopy("Card" + (i * 37 % 1500), i % 3 == 0 ? 1 : 0, 0));
+		deckCard = AbstractDungeon.player.masterDeck.group.get(0);
+
+		sender = TogetherManager.players.get(players - 1);
+
+		message = capture();
+		if (dataType == NetworkHelper.dataType.DeckInfo) {
+			SendDataPatches.sendRemove = true;
+			undo = capture();
+		}
+
+		// Our own ping, turned into one from the sender so it gets echoed
+		if (dataType == NetworkHelper.dataType.Ping)
+			ByteBuffer.wrap(message).putLong(PacketCodec.HEADER_SIZE, sender.getAccountID());
+	}
+
+	@TearDown
+	public void tearDown() {
+		NetworkHelper.outgoing.clear();
+		integration.dispose();
+		TogetherManager.currentLobby = null;
+		AbstractDungeon.player = null;
+	}
+
+	// Sets up what the game hooks would have before a send of this type
+	private void prepare() {
+		if (dataType == NetworkHelper.dataType.State)
+			PlayerState.markAll();
+		if (dataType == NetworkHelper.dataType.DeckInfo)
+			SendDataPatches.sendCard = deckCard;
+	}
+
+	private byte[] capture() {
+		prepare();
+		ByteBuffer data = PacketCodecs.get(dataType).generate();
+		byte[] bytes = new byte[data.remaining()];
+		data.get(bytes);
+		BufferPool.release(data);
+		return bytes;
+	}
+
+	@Benchmark
+	public void generate() {
+		prepare();
+		NetworkHelper.sendData(dataType);
+		NetworkHelper.outgoing.clear();
+	}
+
+	@Benchmark
+	public RemotePlayer parse() {
+		NetworkHelper.parseData(ByteBuffer.wrap(message), sender);
+		if (undo != null)
+			NetworkHelper.parseData(ByteBuffer.wrap(undo), sender);
+
+		// Anything sent in reply is dropped, the send side is measured by generate
+		NetworkHelper.outgoing.clear();
+		return sender;
+	}
+}
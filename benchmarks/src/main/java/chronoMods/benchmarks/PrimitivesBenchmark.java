@@ -0,0 +1,79 @@
+package chronoMods.benchmarks;
+
+import chronoMods.coop.drawable.MapCanvas;
+import chronoMods.network.BufferPool;
+import chronoMods.network.Histogram;
+import chronoMods.network.RingBuffer;
+import chronoMods.network.VarInt;
+import com.badlogic.gdx.math.Vector2;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The small building blocks every packet goes through.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitivesBenchmark {
+
+	RingBuffer<Object> ring = new RingBuffer(1024);
+	Object item = new Object();
+	Histogram histogram = new Histogram();
+	ByteBuffer varints = ByteBuffer.allocate(64);
+	ArrayList<Vector2> stroke = new ArrayList();
+	long value = 0;
+
+	@Setup
+	public void setup() {
+		// A wobbly hand drawn line, like a map stroke
+		Random random = new Random(0);
+		for (int i = 0; i < MapCanvas.MAX_STROKE_POINTS; i++)
+			stroke.add(new Vector2(i * 3f, 200f + (float)Math.sin(i / 10.0) * 40f + random.nextFloat() * 2f));
+	}
+
+	@Benchmark
+	public Object ringOfferPoll() {
+		ring.offer(item);
+		return ring.poll();
+	}
+
+	@Benchmark
+	public void poolAcquireRelease() {
+		BufferPool.release(BufferPool.acquire(256));
+	}
+
+	@Benchmark
+	public void histogramRecord() {
+		histogram.record(value++ & 0xFFFFF);
+	}
+
+	@Benchmark
+	public long histogramPercentile() {
+		return histogram.percentile(0.99);
+	}
+
+	@Benchmark
+	public int varIntRoundTrip() {
+		((Buffer)varints).clear();
+		for (int i = -8; i < 8; i++)
+			VarInt.putSigned(varints, i * 1000);
+		((Buffer)varints).flip();
+
+		int sum = 0;
+		for (int i = 0; i < 16; i++)
+			sum += VarInt.getSigned(varints);
+		return sum;
+	}
+
+	@Benchmark
+	public Object simplifyStroke() {
+		return MapCanvas.simplify(stroke, MapCanvas.simplifyTolerance);
+	}
+}
@@ -0,0 +1,92 @@
+package chronoMods.benchmarks;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.RemotePlayer;
+import chronoMods.network.loopback.Headless;
+import chronoMods.network.loopback.LoopbackIntegration;
+import chronoMods.ui.hud.RemotePlayerWidget;
+import chronoMods.ui.hud.TopPanelPlayerPanels;
+import chronoMods.ui.hud.WidgetRanking;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// The player panels of a versus lobby: ranking them all, moving one after a floor change, and rebuilding their card lists.
+// Runs on Headless, so the decks are cards without art and nothing is drawn.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WidgetBenchmark {
+
+	@Param({"6", "50", "200"})
+	public int players;
+
+	// A typical act 2 deck, a few copies of the basics and then one of most things
+	@Param({"30"})
+	public int deckSize;
+
+	LoopbackIntegration integration = new LoopbackIntegration();
+	RemotePlayer mover;
+	int floor = 0;
+
+	@Setup
+	public void setup() {
+		Headless.start();
+		TogetherManager.gameMode = TogetherManager.mode.Versus;
+
+		integration.peerCount = players - 1;
+		TogetherManager.currentUser = integration.makeCurrentUser();
+		integration.createLobby(TogetherManager.gameMode);
+
+		TopPanelPlayerPanels.playerWidgets.clear();
+		int p = 0;
+		for (RemotePlayer player : TogetherManager.players) {
+			player.floor = p % 20;
+			for (int i = 0; i < deckSize; i++) {
+				AbstractCard card = Headless.card(i < 10 ? "Strike_R" : "Card" + ((p * 7 + i) % 300));
+				card.timesUpgraded = i % 3 == 0 ? 1 : 0;
+				player.deck.addToBottom(card);
+			}
+			TopPanelPlayerPanels.playerWidgets.add(new RemotePlayerWidget(player));
+			p++;
+		}
+		TopPanelPlayerPanels.SortWidgets();
+
+		mover = TogetherManager.players.get(players / 2);
+	}
+
+	@TearDown
+	public void tearDown() {
+		TopPanelPlayerPanels.playerWidgets.clear();
+		integration.dispose();
+		TogetherManager.currentLobby = null;
+	}
+
+	@Benchmark
+	public void sortWidgets() {
+		TopPanelPlayerPanels.SortWidgets();
+	}
+
+	// One player reaching a new floor, which is what a State packet does to the ranking
+	@Benchmark
+	public int rankAfterFloorChange() {
+		mover.floor = floor++ % 60;
+		WidgetRanking.update(mover.widget);
+		return mover.widget.rank;
+	}
+
+	// Every panel's cards rebuilt, as after a wave of deck snapshots
+	@Benchmark
+	public int updateCardDisplay() {
+		int cards = 0;
+		for (RemotePlayerWidget widget : TopPanelPlayerPanels.playerWidgets) {
+			widget.updateCardDisplay();
+			cards += widget.cards.size();
+		}
+		return cards;
+	}
+}
@@ -72,7 +72,7 @@ public class TogetherManager implements PostDeathSubscriber, PostInitializeSubsc
     public static final String MODNAME = "Spire with Friends";
     public static final String AUTHOR = "Chronometrics";
     public static final String DESCRIPTION = "Enables new Coop, Versus Race, and Bingo modes via Steam or Discord Networking.";
-    public static final float VERSION = 3.2f;
+    public static final float VERSION = 3.3f;
 
     public static int modHash;
     public static boolean safeMods = true;
@@ -406,11 +406,11 @@ public class TogetherManager implements PostDeathSubscriber, PostInitializeSubsc
     }
 
     public static RemotePlayer getCurrentUser() {
-        for (RemotePlayer playerInfo : TogetherManager.players) {
-            if (playerInfo.isUser(TogetherManager.currentUser)) {
-                return playerInfo;
-            }
-        }
+        if (currentUser == null) { return null; }
+
+        RemotePlayer playerInfo = NetworkHelper.getPlayer(currentUser.getAccountID());
+        if (playerInfo != null)
+            return playerInfo;
         return currentUser;
     }
 
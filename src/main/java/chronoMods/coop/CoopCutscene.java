@@ -118,7 +118,7 @@ public class CoopCutscene extends Cutscene implements Disposable {
         break;
     }
 
-    String panelPath = "chrono/images/cutscenes/" + TogetherManager.players.size() + "/" + (TogetherManager.players.indexOf(p)+1) + "/" + character + ".png";
+    String panelPath = "chrono/images/cutscenes/" + TogetherManager.players.size() + "/" + (TogetherManager.currentLobby.registry.indexOf(p)+1) + "/" + character + ".png";
     TogetherManager.log("Displaying panel at: " + panelPath);
     CutscenePanel panel = new CutscenePanel(panelPath, "ATTACK_HEAVY");
     this.panels.add(panel);
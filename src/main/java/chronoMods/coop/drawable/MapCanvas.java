@@ -1,11 +1,9 @@
 package chronoMods.coop.drawable;
 
-import chronoMods.TogetherManager;
 import chronoMods.network.NetworkHelper;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Disposable;
 import com.megacrit.cardcrawl.helpers.input.InputHelper;
@@ -19,7 +17,19 @@ public class MapCanvas implements Disposable {
 	public Vector2 curr = null;
 	public Vector2 last = null;
 
-	public ArrayList<Vector2[]> pointQueue = new ArrayList();
+	// Points of the current stroke that haven't been sent yet, on the canvas rather than the screen so scrolling
+	// mid-stroke doesn't move them. While the stroke continues, the last point sent stays at the front so the
+	// next segment joins up with it.
+	public ArrayList<Vector2> stroke = new ArrayList();
+	private boolean anchored = false;
+	private long lastStrokeSend = 0L;
+
+	// Strokes go out when released, when this many points are waiting, or at most once per tick while drawing
+	public static final int MAX_STROKE_POINTS = 256;
+	public static long strokeTickMillis = 100L;
+
+	// Points closer than this many pixels to the simplified line are dropped
+	public static float simplifyTolerance = 1.5f;
 
 	// public static Pixmap brush = new Pixmap(Gdx.files.internal("chrono/images/circle-16-2.png"));
 	public float initialBrushSize = 4f;
@@ -29,15 +39,21 @@ public class MapCanvas implements Disposable {
 
 	public float stepVal = 16f;
 
-	public Pixmap pixmap;
-	public Texture texture;
+	// The canvas is split into tiles that are only allocated once something is drawn on them
+	public static final int TILE_SIZE = 256;
+	public final int width, height;
+	private final int tilesX, tilesY;
+	private MapCanvasTile[] tiles;
 	public boolean dirty;
 
 	public boolean hidden = false;
 
-	public MapCanvas(Pixmap pixmap) {
-		this.pixmap = pixmap;
-		this.pixmap.setColor(drawColour);
+	public MapCanvas(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		this.tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+		this.tiles = new MapCanvasTile[tilesX * tilesY];
 
 		// brush.setFilter(Pixmap.Filter.BiLinear);
 
@@ -50,26 +66,106 @@ public class MapCanvas implements Disposable {
 			curr = new Vector2(InputHelper.mX, InputHelper.mY);
 			
 			if (InputHelper.isMouseDown_R && last == null) {
-				pointQueue.add(new Vector2[] {new Vector2(curr.x, curr.y), null});
+				addStrokePoint(curr);
 				draw(curr, DungeonMapScreen.offsetY);
 
 				last = curr; 
 			} else if (InputHelper.isMouseDown_R) {
-				pointQueue.add(new Vector2[] {new Vector2(curr.x, curr.y), new Vector2(last.x, last.y)});
+				addStrokePoint(curr);
 				drawLerped(last, curr, DungeonMapScreen.offsetY);
 
 				last = curr;
 			}
 		} else if (InputHelper.justReleasedClickRight) {
 			curr = new Vector2(InputHelper.mX, InputHelper.mY);
-			pointQueue.add(new Vector2[] {new Vector2(curr.x, curr.y), null});
+			addStrokePoint(curr);
 
 			draw(curr, DungeonMapScreen.offsetY);	
 			last = null;
 		}
 
-		if (pointQueue.size() > 0) 
-			NetworkHelper.sendData(NetworkHelper.dataType.DrawMap);
+		if (NetworkHelper.service() == null) {
+			stroke.clear();
+			anchored = false;
+		} else if (hasStrokeToSend()) {
+			if (last == null || stroke.size() >= MAX_STROKE_POINTS || System.currentTimeMillis() - lastStrokeSend >= strokeTickMillis)
+				NetworkHelper.sendData(NetworkHelper.dataType.DrawMapStroke);
+		} else if (last == null) {
+			stroke.clear();
+			anchored = false;
+		}
+	}
+
+	// Takes a point on the screen, as drawn this frame
+	private void addStrokePoint(Vector2 point) {
+		Vector2 onCanvas = new Vector2(point.x, point.y - DungeonMapScreen.offsetY);
+		if (stroke.size() > 0 && stroke.get(stroke.size() - 1).epsilonEquals(onCanvas, 0.5f)) { return; }
+		stroke.add(onCanvas);
+	}
+
+	public boolean hasStrokeToSend() {
+		return stroke.size() > (anchored ? 1 : 0);
+	}
+
+	// Simplifies and removes the next segment of the stroke to send, at most MAX_STROKE_POINTS long
+	public ArrayList<Vector2> takeStroke() {
+		ArrayList<Vector2> points = simplify(stroke, simplifyTolerance);
+		ArrayList<Vector2> segment;
+
+		if (points.size() > MAX_STROKE_POINTS) {
+			segment = new ArrayList(points.subList(0, MAX_STROKE_POINTS));
+			stroke = new ArrayList(points.subList(MAX_STROKE_POINTS - 1, points.size()));
+			anchored = true;
+		} else {
+			segment = points;
+			stroke = new ArrayList();
+			anchored = last != null;
+			if (anchored)
+				stroke.add(points.get(points.size() - 1));
+		}
+
+		lastStrokeSend = System.currentTimeMillis();
+		return segment;
+	}
+
+	// Douglas-Peucker, keeping the end points and anything further than tolerance from the line between kept points
+	public static ArrayList<Vector2> simplify(ArrayList<Vector2> points, float tolerance) {
+		if (points.size() < 3) { return new ArrayList(points); }
+
+		boolean[] keep = new boolean[points.size()];
+		keep[0] = true;
+		keep[points.size() - 1] = true;
+
+		ArrayList<int[]> ranges = new ArrayList();
+		ranges.add(new int[] {0, points.size() - 1});
+
+		while (!ranges.isEmpty()) {
+			int[] range = ranges.remove(ranges.size() - 1);
+			Vector2 a = points.get(range[0]);
+			Vector2 b = points.get(range[1]);
+
+			float furthest = -1f;
+			int index = -1;
+			for (int i = range[0] + 1; i < range[1]; i++) {
+				float d = Intersector.distanceSegmentPoint(a, b, points.get(i));
+				if (d > furthest) {
+					furthest = d;
+					index = i;
+				}
+			}
+
+			if (index != -1 && furthest > tolerance) {
+				keep[index] = true;
+				ranges.add(new int[] {range[0], index});
+				ranges.add(new int[] {index, range[1]});
+			}
+		}
+
+		ArrayList<Vector2> simplified = new ArrayList();
+		for (int i = 0; i < points.size(); i++)
+			if (keep[i])
+				simplified.add(points.get(i));
+		return simplified;
 	}
 
 	public void render(SpriteBatch sb, float alpha) {
@@ -80,29 +176,64 @@ public class MapCanvas implements Disposable {
 		Color c = new Color(1.0f, 1.0f, 1.0f, alpha);
 		sb.setColor(c);
 
-		if (dirty) {
-			if (texture == null){
-				this.texture = new Texture(pixmap);
-			}
+		float top = DungeonMapScreen.offsetY + height;
+		for (MapCanvasTile tile : tiles)
+			if (tile != null)
+				tile.render(sb, top);
 
-			TogetherManager.log("Updating pixmap for " + this.drawColour);
-			texture.draw(pixmap, 0, 0);
-			dirty = false;
-		}
-		
-		if (texture != null)
-			sb.draw(this.texture, 0, DungeonMapScreen.offsetY);
+		dirty = false;
 	}
 
+	// Drops every tile, so a cleared canvas holds no pixmaps at all
 	public void clear() {
-		pixmap.setColor(clearColor);
-		pixmap.fill();
-		pixmap.setColor(drawColour);
+		for (int i = 0; i < tiles.length; i++) {
+			if (tiles[i] != null) {
+				tiles[i].dispose();
+				tiles[i] = null;
+			}
+		}
 		dirty = true;
 	}
 
+	private MapCanvasTile tile(int tx, int ty) {
+		int index = ty * tilesX + tx;
+		if (tiles[index] == null) {
+			int x = tx * TILE_SIZE;
+			int y = ty * TILE_SIZE;
+			tiles[index] = new MapCanvasTile(x, y, Math.min(TILE_SIZE, width - x), Math.min(TILE_SIZE, height - y), clearColor);
+		}
+		return tiles[index];
+	}
+
+	public int allocatedTiles() {
+		int count = 0;
+		for (MapCanvasTile tile : tiles)
+			if (tile != null)
+				count++;
+		return count;
+	}
+
 	private void drawDot(Vector2 spot, float offset) {
-		pixmap.fillCircle((int)spot.x, pixmap.getHeight() + (int)offset - (int)spot.y, (int)brushSize);
+		drawDot(spot.x, spot.y, offset);
+	}
+
+	private void drawDot(float x, float y, float offset) {
+		int px = (int)x;
+		int py = height + (int)offset - (int)y;
+		int radius = (int)brushSize;
+
+		// Every tile the dot's bounding box overlaps
+		int minTX = Math.max(0, (px - radius) / TILE_SIZE);
+		int minTY = Math.max(0, (py - radius) / TILE_SIZE);
+		int maxTX = Math.min(tilesX - 1, (px + radius) / TILE_SIZE);
+		int maxTY = Math.min(tilesY - 1, (py + radius) / TILE_SIZE);
+		if (px + radius < 0 || py + radius < 0) { return; }
+
+		for (int ty = minTY; ty <= maxTY; ty++)
+			for (int tx = minTX; tx <= maxTX; tx++)
+				tile(tx, ty).fillCircle(px, py, radius, drawColour);
+
+		dirty = true;
 		// pixmap.drawPixmap(brush, 0, 0, 16, 16, (int) spot.x, Settings.HEIGHT-(int) spot.y, (int)brushSize, (int)brushSize);
 	}
 
@@ -124,9 +255,28 @@ public class MapCanvas implements Disposable {
 		dirty = true;
 	}
 
+	// Draws a whole received polyline at the same dot spacing as drawLerped, a single point is just a dot.
+	// The points are on the canvas already, so there's no scroll offset to take off.
+	public void drawStroke(float[] xs, float[] ys, int count) {
+		if (count <= 0) { return; }
+
+		drawDot(xs[0], ys[0], 0f);
+		for (int i = 1; i < count; i++) {
+			float dx = xs[i] - xs[i-1];
+			float dy = ys[i] - ys[i-1];
+			int steps = (int)Math.ceil(Math.sqrt(dx * dx + dy * dy) * stepVal / brushSize);
+
+			for (int step = 1; step <= steps; step++) {
+				float a = (float)step / steps;
+				drawDot(xs[i-1] + dx * a, ys[i-1] + dy * a, 0f);
+			}
+		}
+
+		dirty = true;
+	}
+
 	@Override
 	public void dispose() {
-		texture.dispose();
-		pixmap.dispose();
+		clear();
 	}
 }
@@ -0,0 +1,103 @@
+package chronoMods.coop.drawable;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// One fixed-size piece of a MapCanvas. Tiles only exist once something has been drawn on them,
+// and only the rectangle touched since the last upload is sent to the GPU.
+public class MapCanvasTile implements Disposable {
+
+	// Desktop GL only, GLES2 doesn't define it in GL20
+	private static final int GL_UNPACK_ROW_LENGTH = 0x0CF2;
+
+	// Position of the top left corner within the canvas, in pixmap coordinates
+	public final int x, y;
+	public final Pixmap pixmap;
+	public Texture texture;
+
+	public boolean dirty = false;
+	// Bounds of everything drawn since the last upload, max exclusive
+	private int dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY;
+
+	public MapCanvasTile(int x, int y, int width, int height, Color clearColor) {
+		this.x = x;
+		this.y = y;
+
+		// New pixmaps aren't guaranteed to be blank
+		pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+		pixmap.setColor(clearColor);
+		pixmap.fill();
+
+		resetDirty();
+	}
+
+	// Coordinates are in canvas space, anything outside this tile is clipped by the pixmap
+	public void fillCircle(int cx, int cy, int radius, Color colour) {
+		pixmap.setColor(colour);
+		pixmap.fillCircle(cx - x, cy - y, radius);
+		markDirty(cx - x - radius, cy - y - radius, cx - x + radius + 1, cy - y + radius + 1);
+	}
+
+	// canvasTop is the screen y of the top edge of the canvas
+	public void render(SpriteBatch sb, float canvasTop) {
+		if (dirty) {
+			// A new texture uploads the whole tile, after that only the touched rectangle goes up
+			if (texture == null)
+				texture = new Texture(pixmap);
+			else
+				upload(texture, pixmap, dirtyMinX, dirtyMinY, dirtyMaxX - dirtyMinX, dirtyMaxY - dirtyMinY);
+
+			dirty = false;
+			resetDirty();
+		}
+
+		sb.draw(texture, x, canvasTop - y - pixmap.getHeight());
+	}
+
+	private void markDirty(int minX, int minY, int maxX, int maxY) {
+		dirtyMinX = Math.max(0, Math.min(dirtyMinX, minX));
+		dirtyMinY = Math.max(0, Math.min(dirtyMinY, minY));
+		dirtyMaxX = Math.min(pixmap.getWidth(), Math.max(dirtyMaxX, maxX));
+		dirtyMaxY = Math.min(pixmap.getHeight(), Math.max(dirtyMaxY, maxY));
+		dirty = true;
+	}
+
+	private void resetDirty() {
+		dirtyMinX = Integer.MAX_VALUE;
+		dirtyMinY = Integer.MAX_VALUE;
+		dirtyMaxX = Integer.MIN_VALUE;
+		dirtyMaxY = Integer.MIN_VALUE;
+	}
+
+	// Uploads one rectangle of an RGBA8888 pixmap into the texture with glTexSubImage2D, rather than all of it like Texture.draw
+	public static void upload(Texture texture, Pixmap pixmap, int x, int y, int width, int height) {
+		if (width <= 0 || height <= 0) { return; }
+
+		ByteBuffer pixels = pixmap.getPixels();
+		texture.bind();
+
+		Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+		Gdx.gl.glPixelStorei(GL_UNPACK_ROW_LENGTH, pixmap.getWidth());
+		((Buffer)pixels).position((y * pixmap.getWidth() + x) * 4);
+
+		Gdx.gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, x, y, width, height, pixmap.getGLFormat(), pixmap.getGLType(), pixels);
+
+		((Buffer)pixels).position(0);
+		Gdx.gl.glPixelStorei(GL_UNPACK_ROW_LENGTH, 0);
+	}
+
+	@Override
+	public void dispose() {
+		if (texture != null)
+			texture.dispose();
+		pixmap.dispose();
+	}
+}
@@ -2,6 +2,7 @@ package chronoMods.coop.relics;
 
 import chronoMods.TogetherManager;
 import chronoMods.network.NetworkHelper;
+import chronoMods.network.PlayerState;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.evacipated.cardcrawl.modthespire.lib.SpireInsertPatch;
 import com.evacipated.cardcrawl.modthespire.lib.SpirePatch;
@@ -82,7 +83,7 @@ public class BondsOfFate extends AbstractBlight {
         else
             this.counter--;
 
-        NetworkHelper.sendData(NetworkHelper.dataType.Hp);
+        PlayerState.mark(PlayerState.HEALTH);
         NetworkHelper.sendData(NetworkHelper.dataType.LoseLife);
     }
 
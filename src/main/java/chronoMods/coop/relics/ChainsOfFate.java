@@ -2,6 +2,7 @@ package chronoMods.coop.relics;
 
 import chronoMods.TogetherManager;
 import chronoMods.network.NetworkHelper;
+import chronoMods.network.PlayerState;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.evacipated.cardcrawl.modthespire.lib.SpireInsertPatch;
@@ -73,7 +74,7 @@ public class ChainsOfFate extends AbstractBlight {
         if (this.increment == 0)
             this.counter--;
 
-        NetworkHelper.sendData(NetworkHelper.dataType.Hp);
+        PlayerState.mark(PlayerState.HEALTH);
         NetworkHelper.sendData(NetworkHelper.dataType.LoseLife);
     }
 
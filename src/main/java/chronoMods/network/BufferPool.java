@@ -0,0 +1,212 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Size-classed pool of direct buffers for packets, so sending and receiving doesn't allocate.
+// Every acquire must be paired with exactly one release once the buffer is no longer used.
+// Buffers bigger than the largest class are allocated normally and simply dropped on release.
+// Pooled buffers carry a slot number in a few bytes past the end of their class, and the slot holds the buffer,
+// so release can tell ours from anything else without a lock. Nothing past the limit acquire sets is ever used.
+public class BufferPool {
+
+	public static final int[] SIZE_CLASSES = new int[] { 64, 256, Integration.MAX_PACKET_SIZE };
+
+	// Cap on idle buffers kept per class, so a burst doesn't pin memory forever
+	public static final int MAX_IDLE = 256;
+
+	// Debug builds track every outstanding buffer and report the ones that are never released
+	public static boolean leakDetection = TogetherManager.debug;
+	public static final long LEAK_AGE = 30000L;
+	private static final long LEAK_CHECK_INTERVAL = 10000L;
+	private static long lastLeakCheck = 0L;
+	// By identity, ByteBuffer's equals and hashCode go by contents
+	private static Map<ByteBuffer, Allocation> outstanding = Collections.synchronizedMap(new IdentityHashMap());
+
+	// Debug builds also keep every pooled buffer that's out by identity, to catch the same one released twice
+	private static final Map<ByteBuffer, Boolean> owned = new IdentityHashMap();
+
+	// Room for the slot number after each class's bytes
+	private static final int TAG_SIZE = 4;
+	// Most pooled buffers per class, in use or idle. Past this, buffers are allocated untagged and dropped on release.
+	public static final int MAX_TRACKED = 4096;
+	private static final AtomicReferenceArray<ByteBuffer>[] tracked = new AtomicReferenceArray[SIZE_CLASSES.length];
+	// Slots not holding a buffer, only touched when a buffer is allocated or dropped
+	private static final int[][] freeSlots = new int[SIZE_CLASSES.length][MAX_TRACKED];
+	private static final int[] freeSlotCount = new int[SIZE_CLASSES.length];
+
+	private static final ConcurrentLinkedQueue<ByteBuffer>[] free = new ConcurrentLinkedQueue[SIZE_CLASSES.length];
+	private static final AtomicInteger[] idle = new AtomicInteger[SIZE_CLASSES.length];
+
+	static {
+		for (int i = 0; i < SIZE_CLASSES.length; i++) {
+			free[i] = new ConcurrentLinkedQueue();
+			idle[i] = new AtomicInteger();
+			tracked[i] = new AtomicReferenceArray(MAX_TRACKED);
+			for (int slot = 0; slot < MAX_TRACKED; slot++)
+				freeSlots[i][slot] = MAX_TRACKED - 1 - slot;
+			freeSlotCount[i] = MAX_TRACKED;
+		}
+	}
+
+	private static class Allocation {
+		public final long time = System.currentTimeMillis();
+		public final Throwable trace = new Throwable("Buffer acquired here");
+	}
+
+	// Returns a zeroed buffer with position 0 and limit set to the requested size
+	public static ByteBuffer acquire(int size) {
+		int sizeClass = classFor(size);
+		ByteBuffer data = null;
+
+		if (sizeClass >= 0) {
+			data = free[sizeClass].poll();
+			if (data != null) {
+				idle[sizeClass].decrementAndGet();
+				// Absolute puts stop at the limit, which the last user will have left short
+				((Buffer)data).clear();
+				zero(data, SIZE_CLASSES[sizeClass]);
+			} else {
+				data = allocate(sizeClass);
+			}
+		} else {
+			data = ByteBuffer.allocateDirect(size);
+		}
+
+		((Buffer)data).clear();
+		((Buffer)data).limit(size);
+
+		if (leakDetection && exactClass(data.capacity()) >= 0) {
+			synchronized (owned) {
+				owned.put(data, true);
+			}
+			outstanding.put(data, new Allocation());
+		}
+
+		return data;
+	}
+
+	public static void release(ByteBuffer data) {
+		if (data == null || !data.isDirect()) { return; }
+
+		int sizeClass = exactClass(data.capacity());
+		if (sizeClass < 0) { return; }
+
+		// Foreign buffers and slices can share a tagged capacity, but their slot never holds them.
+		// The tag is past the limit, so open it up to read it and put it back if the buffer isn't ours.
+		int limit = data.limit();
+		((Buffer)data).limit(data.capacity());
+		int slot = data.getInt(SIZE_CLASSES[sizeClass]);
+		if (slot < 0 || slot >= MAX_TRACKED || tracked[sizeClass].get(slot) != data) {
+			((Buffer)data).limit(limit);
+			return;
+		}
+
+		if (leakDetection) {
+			synchronized (owned) {
+				if (owned.get(data) == Boolean.FALSE) {
+					TogetherManager.logger.warn("Buffer released twice", new Throwable());
+					return;
+				}
+				owned.put(data, false);
+			}
+			outstanding.remove(data);
+		}
+
+		if (idle[sizeClass].incrementAndGet() > MAX_IDLE) {
+			idle[sizeClass].decrementAndGet();
+			untrack(sizeClass, slot, data);
+			return;
+		}
+
+		free[sizeClass].add(data);
+	}
+
+	// Run every frame, only does any work when leak detection is on
+	public static void checkLeaks() {
+		if (!leakDetection) { return; }
+
+		long now = System.currentTimeMillis();
+		if (now - lastLeakCheck < LEAK_CHECK_INTERVAL) { return; }
+		lastLeakCheck = now;
+
+		// IdentityHashMap's entries are views of its table, so take copies before removing anything
+		ArrayList<ByteBuffer> leaked = new ArrayList();
+		ArrayList<Allocation> allocations = new ArrayList();
+		synchronized (outstanding) {
+			for (Map.Entry<ByteBuffer, Allocation> entry : outstanding.entrySet()) {
+				if (now - entry.getValue().time > LEAK_AGE) {
+					leaked.add(entry.getKey());
+					allocations.add(entry.getValue());
+				}
+			}
+			for (ByteBuffer data : leaked)
+				outstanding.remove(data);
+		}
+
+		for (int i = 0; i < leaked.size(); i++)
+			TogetherManager.logger.warn("Buffer of " + (leaked.get(i).capacity() - TAG_SIZE) + " bytes held for over " + (LEAK_AGE / 1000) + "s", allocations.get(i).trace);
+	}
+
+	// A new buffer for the class, tagged with a free slot. Untagged, so never taken back, if every slot is taken.
+	private static ByteBuffer allocate(int sizeClass) {
+		int slot;
+		synchronized (freeSlots[sizeClass]) {
+			if (freeSlotCount[sizeClass] == 0)
+				return ByteBuffer.allocateDirect(SIZE_CLASSES[sizeClass]);
+			slot = freeSlots[sizeClass][--freeSlotCount[sizeClass]];
+		}
+
+		ByteBuffer data = ByteBuffer.allocateDirect(SIZE_CLASSES[sizeClass] + TAG_SIZE);
+		data.putInt(SIZE_CLASSES[sizeClass], slot);
+		tracked[sizeClass].set(slot, data);
+		return data;
+	}
+
+	// Forgets a buffer that's being dropped rather than kept idle, so its slot can be used again
+	private static void untrack(int sizeClass, int slot, ByteBuffer data) {
+		tracked[sizeClass].set(slot, null);
+		synchronized (freeSlots[sizeClass]) {
+			freeSlots[sizeClass][freeSlotCount[sizeClass]++] = slot;
+		}
+
+		if (leakDetection) {
+			synchronized (owned) {
+				owned.remove(data);
+			}
+		}
+	}
+
+	private static int classFor(int size) {
+		for (int i = 0; i < SIZE_CLASSES.length; i++)
+			if (size <= SIZE_CLASSES[i])
+				return i;
+		return -1;
+	}
+
+	// The class of a tagged buffer, by its capacity
+	private static int exactClass(int capacity) {
+		for (int i = 0; i < SIZE_CLASSES.length; i++)
+			if (capacity == SIZE_CLASSES[i] + TAG_SIZE)
+				return i;
+		return -1;
+	}
+
+	// Clears the class's bytes and leaves the tag after them alone
+	private static void zero(ByteBuffer data, int size) {
+		int i = 0;
+		for (; i + 8 <= size; i += 8)
+			data.putLong(i, 0L);
+		for (; i < size; i++)
+			data.put(i, (byte)0);
+	}
+}
@@ -8,12 +8,20 @@ import com.megacrit.cardcrawl.cards.AbstractCard;
 import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
 import com.megacrit.cardcrawl.helpers.CardLibrary;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
 public class CardDataBuffer {
 	
 	public static Json json = new Json();
 
+	// First byte of an encoded card. Binary uses CardDictionary indices, JSON is the fallback for anything the dictionary can't name.
+	public static final byte FORMAT_JSON = 0;
+	public static final byte FORMAT_BINARY = 1;
+	// Merge cards aren't in CardLibrary, so they get their own tag instead of a dictionary index, followed by their parts' indices
+	public static final byte FORMAT_MERGED = 2;
+
 	public String cardID;
 	public int misc;
 	public int timesUpgraded;
@@ -73,6 +81,11 @@ public class CardDataBuffer {
 		if (AbstractDungeon.player != null && AbstractDungeon.player.hasBlight("PneumaticPost"))
 			timesUpgraded++;
 
+		return generateCopy();
+	}
+
+	// The card exactly as described, without what receiving it would add. Used to mirror someone else's deck.
+	public AbstractCard generateCopy() {
 		// Merged Card
 		if (cardID.equals("MergeCard")) {
 			ArrayList<AbstractCard> cards = new ArrayList();
@@ -94,10 +107,120 @@ public class CardDataBuffer {
 
 	public byte[] getBytes() {
 		String dataString = json.toJson(this);
-		return dataString.getBytes();
+		return dataString.getBytes(StandardCharsets.UTF_8);
 	}
 
+	// Bytes needed by write()
 	public int getBufferSize() {
-		return getBytes().length;
+		if (!canWriteBinary())
+			return 1 + 4 + getBytes().length;
+
+		int size = 1;
+		if (!isMerged())
+			size += VarInt.size(CardDictionary.cardIndex(cardID));
+		size += VarInt.size(timesUpgraded);
+		size += VarInt.sizeSigned(misc);
+
+		if (iSet.equals("")) {
+			size += VarInt.size(0);
+		} else {
+			size += VarInt.size(CardDictionary.setIndex(iSet) + 1);
+			size += VarInt.size(iIndex);
+		}
+
+		if (isMerged()) {
+			String[] parts = mergeCardID.split(";");
+			size += VarInt.size(parts.length);
+			for (String part : parts)
+				size += VarInt.size(CardDictionary.cardIndex(part));
+		}
+
+		return size;
+	}
+
+	// Binary is only safe when everyone shares our dictionary and it knows every ID on this card
+	private boolean canWriteBinary() {
+		if (!CardDictionary.isShared()) { return false; }
+		if (!iSet.equals("") && CardDictionary.setIndex(iSet) == CardDictionary.UNKNOWN) { return false; }
+
+		if (isMerged()) {
+			for (String part : mergeCardID.split(";"))
+				if (CardDictionary.cardIndex(part) == CardDictionary.UNKNOWN)
+					return false;
+			return true;
+		}
+
+		return CardDictionary.cardIndex(cardID) != CardDictionary.UNKNOWN;
+	}
+
+	private boolean isMerged() {
+		return cardID.equals("MergeCard") && mergeCardID != null;
+	}
+
+	public void write(ByteBuffer data) {
+		if (!canWriteBinary()) {
+			byte[] bytes = getBytes();
+			data.put(FORMAT_JSON);
+			data.putInt(bytes.length);
+			data.put(bytes);
+			return;
+		}
+
+		if (isMerged()) {
+			data.put(FORMAT_MERGED);
+		} else {
+			data.put(FORMAT_BINARY);
+			VarInt.put(data, CardDictionary.cardIndex(cardID));
+		}
+		VarInt.put(data, timesUpgraded);
+		VarInt.putSigned(data, misc);
+
+		if (iSet.equals("")) {
+			VarInt.put(data, 0);
+		} else {
+			VarInt.put(data, CardDictionary.setIndex(iSet) + 1);
+			VarInt.put(data, iIndex);
+		}
+
+		if (isMerged()) {
+			String[] parts = mergeCardID.split(";");
+			VarInt.put(data, parts.length);
+			for (String part : parts)
+				VarInt.put(data, CardDictionary.cardIndex(part));
+		}
+	}
+
+	public static CardDataBuffer read(ByteBuffer data) {
+		byte format = data.get();
+
+		if (format == FORMAT_JSON) {
+			byte[] bytes = new byte[data.getInt()];
+			data.get(bytes);
+			return fromJson(new String(bytes, StandardCharsets.UTF_8));
+		}
+
+		CardDataBuffer buffer = new CardDataBuffer();
+		buffer.cardID = format == FORMAT_MERGED ? "MergeCard" : CardDictionary.cardID(VarInt.get(data));
+		buffer.timesUpgraded = VarInt.get(data);
+		buffer.misc = VarInt.getSigned(data);
+
+		int set = VarInt.get(data);
+		if (set > 0) {
+			buffer.iSet = CardDictionary.setID(set - 1);
+			buffer.iIndex = VarInt.get(data);
+		}
+
+		if (format == FORMAT_MERGED) {
+			int count = VarInt.get(data);
+			StringBuilder merged = new StringBuilder();
+			for (int i = 0; i < count; i++) {
+				if (i > 0)
+					merged.append(";");
+				merged.append(CardDictionary.cardID(VarInt.get(data)));
+			}
+			buffer.mergeCardID = merged.toString();
+		}
+
+		return buffer;
 	}
 }
\ No newline at end of file
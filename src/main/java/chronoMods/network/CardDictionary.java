@@ -0,0 +1,122 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+import chronoMods.coop.infusions.InfusionSet;
+import chronoMods.coop.infusions.LinkedInfusions;
+import com.megacrit.cardcrawl.helpers.CardLibrary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+// Maps card IDs and infusion set IDs to small integers so card packets don't have to spell them out.
+// Both lists are sorted, so two players with the same cards loaded build the same dictionary.
+// The hash is exchanged in the Version packet, and indices are only sent when everyone agrees on it.
+public class CardDictionary {
+
+	public static final int UNKNOWN = -1;
+
+	private static ArrayList<String> cardIDs;
+	private static HashMap<String, Integer> cardIndices;
+	private static ArrayList<String> setIDs;
+	private static HashMap<String, Integer> setIndices;
+	private static int hash;
+
+	// isShared is asked for every card written, so the answer is kept until the lobby or someone's dictionary changes
+	private static boolean shared;
+	private static boolean sharedKnown = false;
+	private static List<RemotePlayer> sharedPlayers;
+	private static int sharedSize;
+
+	public static void build() {
+		ArrayList<String> sets = new ArrayList();
+		if (LinkedInfusions.defaultInfusions != null)
+			sets.add(LinkedInfusions.defaultInfusions.setID);
+		for (ArrayList<InfusionSet> setHolder : LinkedInfusions.characterInfusionMasterList.values())
+			for (InfusionSet set : setHolder)
+				if (!sets.contains(set.setID))
+					sets.add(set.setID);
+
+		build(CardLibrary.cards.keySet(), sets);
+	}
+
+	// Builds from the given IDs rather than the loaded game, e.g. for the benchmarks which run without it
+	public static void build(Collection<String> cards, Collection<String> sets) {
+		cardIDs = new ArrayList(cards);
+		Collections.sort(cardIDs);
+		cardIndices = new HashMap();
+		for (int i = 0; i < cardIDs.size(); i++)
+			cardIndices.put(cardIDs.get(i), i);
+
+		setIDs = new ArrayList(sets);
+		Collections.sort(setIDs);
+		setIndices = new HashMap();
+		for (int i = 0; i < setIDs.size(); i++)
+			setIndices.put(setIDs.get(i), i);
+
+		hash = 31 * cardIDs.hashCode() + setIDs.hashCode();
+		invalidate();
+		TogetherManager.log("Card dictionary built with " + cardIDs.size() + " cards and " + setIDs.size() + " infusion sets");
+	}
+
+	private static void ensureBuilt() {
+		if (cardIDs == null)
+			build();
+	}
+
+	public static int getHash() {
+		ensureBuilt();
+		return hash;
+	}
+
+	// True when every player in the lobby reported the same dictionary as us
+	public static boolean isShared() {
+		int ours = getHash();
+		List<RemotePlayer> players = TogetherManager.players;
+		// Lobbies swap the player list out wholesale as they're joined, the same as PlayerRegistry checks for
+		if (sharedKnown && sharedPlayers == players && sharedSize == players.size())
+			return shared;
+
+		shared = true;
+		for (RemotePlayer player : players) {
+			if (!player.isUser(TogetherManager.currentUser) && player.cardDictionaryHash != ours) {
+				shared = false;
+				break;
+			}
+		}
+
+		sharedKnown = true;
+		sharedPlayers = players;
+		sharedSize = players.size();
+		return shared;
+	}
+
+	// Called when a Version packet tells us someone's dictionary, and on join and leave
+	public static void invalidate() {
+		sharedKnown = false;
+	}
+
+	public static int cardIndex(String cardID) {
+		ensureBuilt();
+		Integer index = cardIndices.get(cardID);
+		return index == null ? UNKNOWN : index;
+	}
+
+	public static String cardID(int index) {
+		ensureBuilt();
+		return cardIDs.get(index);
+	}
+
+	public static int setIndex(String setID) {
+		ensureBuilt();
+		Integer index = setIndices.get(setID);
+		return index == null ? UNKNOWN : index;
+	}
+
+	public static String setID(int index) {
+		ensureBuilt();
+		return setIDs.get(index);
+	}
+}
@@ -0,0 +1,60 @@
+package chronoMods.network;
+
+import chronoMods.coop.hubris.DuctTapeCard;
+import chronoMods.coop.infusions.Infusion;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.cards.CardGroup;
+
+// Keeps everyone's copy of our deck honest. We publish a hash of our master deck in the State block, receivers roll
+// the same hash over their copy as DeckInfo deltas land, and ask for a whole DeckSnapshot when the two disagree.
+// The hash is a sum over cards, so adding, removing or upgrading one card only touches that card's term.
+public class DeckSync {
+
+	// Minimum time between snapshot requests to the same player
+	public static long requestMillis = 5000L;
+
+	// Covers what DeckInfo keeps in step: the card, its upgrades, its infusion. Misc changes every combat for some cards and isn't mirrored.
+	public static long cardHash(AbstractCard card) {
+		long h;
+		if (card.cardID.equals("MergeCard"))
+			h = ((DuctTapeCard)card).generateTransferID().hashCode();
+		else
+			h = card.cardID.hashCode() * 31L + card.timesUpgraded;
+
+		Infusion infusion = Infusion.infusionField.infusion.get(card);
+		if (infusion != null)
+			h = (h * 31L + infusion.setID.hashCode()) * 31L + infusion.indexID;
+
+		return mix(h);
+	}
+
+	public static long deckHash(CardGroup deck) {
+		long hash = 0L;
+		for (AbstractCard card : deck.group)
+			hash += cardHash(card);
+		return hash;
+	}
+
+	// The player told us the hash of their deck, so check our copy against it
+	public static void reported(RemotePlayer player, long hash) {
+		player.reportedDeckHash = hash;
+		if (player.deckHash == hash) { return; }
+
+		// We already have their snapshot of this very deck and couldn't rebuild it, another would come out the same.
+		// Ask again once their deck moves on.
+		if (player.snapshotHash == hash) { return; }
+
+		long now = System.currentTimeMillis();
+		if (now - player.deckRequested < requestMillis) { return; }
+		player.deckRequested = now;
+
+		NetworkHelper.sendDataTo(NetworkHelper.dataType.DeckRequest, player);
+	}
+
+	// SplitMix64's finaliser, so similar cards land far apart and the sum doesn't cancel out
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
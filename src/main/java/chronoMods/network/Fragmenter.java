@@ -0,0 +1,149 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+// Splits datagrams bigger than Integration.MAX_PACKET_SIZE into fragments, and puts them back together on the other side.
+// A fragment is [Fragment ordinal][int message id][short index][short count][piece of the original datagram].
+// Every transport is reliable, so the pieces only need collecting, but nothing assumes they arrive in order.
+public class Fragmenter {
+
+	public static final int HEADER_SIZE = 12;
+	public static final int PAYLOAD_SIZE = Integration.MAX_PACKET_SIZE - HEADER_SIZE;
+
+	// Bounds on what's held for reassembly: pieces per message, and messages part way in at once
+	public static final int MAX_FRAGMENTS = 64;
+	public static final int MAX_PARTIALS = 16;
+	public static final int MAX_MESSAGE_SIZE = MAX_FRAGMENTS * PAYLOAD_SIZE;
+
+	// Partly received messages are dropped after this long
+	public static final long TIMEOUT = 10000L;
+
+	private static class Partial {
+		public long sender;
+		public int id;
+		public int count;
+		public long received = 0L;
+		public int length = 0;
+		public long started = System.currentTimeMillis();
+		public ByteBuffer data;
+	}
+
+	// Only touched from the game loop, which is where everything is sent from and parsed
+	private static int nextID = 0;
+	private static ArrayList<Partial> partials = new ArrayList();
+
+	public static boolean isTooBig(ByteBuffer data) {
+		return data.remaining() > Integration.MAX_PACKET_SIZE;
+	}
+
+	public static int count(ByteBuffer data) {
+		return (data.remaining() + PAYLOAD_SIZE - 1) / PAYLOAD_SIZE;
+	}
+
+	public static int nextID() {
+		return nextID++;
+	}
+
+	// Copies one piece of the datagram into its own pooled buffer
+	public static ByteBuffer fragment(ByteBuffer data, int id, int index, int count) {
+		int start = data.position() + index * PAYLOAD_SIZE;
+		int length = Math.min(PAYLOAD_SIZE, data.limit() - start);
+
+		ByteBuffer fragment = BufferPool.acquire(HEADER_SIZE + length);
+		fragment.putInt(NetworkHelper.dataType.Fragment.ordinal());
+		fragment.putInt(id);
+		fragment.putShort((short)index);
+		fragment.putShort((short)count);
+
+		ByteBuffer piece = data.duplicate();
+		((Buffer)piece).position(start);
+		((Buffer)piece).limit(start + length);
+		fragment.put(piece);
+		((Buffer)fragment).rewind();
+
+		return fragment;
+	}
+
+	// Takes in one fragment, and returns the whole datagram once the last piece is in. The caller releases what's returned.
+	public static ByteBuffer receive(ByteBuffer data, RemotePlayer player) {
+		int id = data.getInt(4);
+		int index = data.getShort(8) & 0xFFFF;
+		int count = data.getShort(10) & 0xFFFF;
+		int length = data.limit() - HEADER_SIZE;
+
+		if (count == 0 || count > MAX_FRAGMENTS || index >= count || length <= 0 || length > PAYLOAD_SIZE || (index < count - 1 && length != PAYLOAD_SIZE)) {
+			TogetherManager.log("Bad fragment from " + player.userName);
+			return null;
+		}
+
+		expire();
+
+		Partial partial = find(player.getAccountID(), id);
+		if (partial == null) {
+			// Out of room, so give up on the oldest
+			if (partials.size() >= MAX_PARTIALS)
+				drop(partials.get(0));
+
+			partial = new Partial();
+			partial.sender = player.getAccountID();
+			partial.id = id;
+			partial.count = count;
+			partial.data = BufferPool.acquire(count * PAYLOAD_SIZE);
+			partials.add(partial);
+		}
+
+		long bit = 1L << index;
+		if (partial.count != count || (partial.received & bit) != 0) { return null; }
+		partial.received |= bit;
+
+		ByteBuffer piece = data.duplicate();
+		((Buffer)piece).limit(data.limit());
+		((Buffer)piece).position(HEADER_SIZE);
+
+		ByteBuffer target = partial.data.duplicate();
+		((Buffer)target).position(index * PAYLOAD_SIZE);
+		target.put(piece);
+
+		if (index == count - 1)
+			partial.length = index * PAYLOAD_SIZE + length;
+
+		long all = count == 64 ? -1L : (1L << count) - 1;
+		if (partial.received != all) { return null; }
+
+		partials.remove(partial);
+		((Buffer)partial.data).position(0);
+		((Buffer)partial.data).limit(partial.length);
+		return partial.data;
+	}
+
+	public static void clear() {
+		while (!partials.isEmpty())
+			drop(partials.get(0));
+	}
+
+	private static Partial find(long sender, int id) {
+		for (Partial partial : partials)
+			if (partial.sender == sender && partial.id == id)
+				return partial;
+		return null;
+	}
+
+	private static void expire() {
+		long now = System.currentTimeMillis();
+		for (int i = partials.size() - 1; i >= 0; i--) {
+			if (now - partials.get(i).started > TIMEOUT) {
+				TogetherManager.log("Fragmented message " + partials.get(i).id + " timed out");
+				drop(partials.get(i));
+			}
+		}
+	}
+
+	private static void drop(Partial partial) {
+		partials.remove(partial);
+		BufferPool.release(partial.data);
+	}
+}
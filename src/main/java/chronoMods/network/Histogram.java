@@ -0,0 +1,65 @@
+package chronoMods.network;
+
+import java.util.Arrays;
+
+// Log-linear histogram of non-negative values, in the style of HdrHistogram.
+// Values below 2*SUB are kept exactly, above that each power of two is split into SUB buckets,
+// so any percentile is within about 6% of the true value no matter the magnitude.
+public class Histogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB + 2 * SUB;
+
+	private long[] counts = new long[BUCKETS];
+	public long count = 0;
+	public long sum = 0;
+	public long max = 0;
+
+	public void record(long value) {
+		if (value < 0) value = 0;
+		counts[bucket(value)]++;
+		count++;
+		sum += value;
+		max = Math.max(max, value);
+	}
+
+	public double mean() {
+		return count == 0 ? 0.0 : (double)sum / count;
+	}
+
+	// Lower bound of the bucket holding the given fraction of values, e.g. 0.99 for p99
+	public long percentile(double fraction) {
+		if (count == 0) { return 0; }
+
+		long target = Math.max(1, (long)Math.ceil(fraction * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= target)
+				return Math.min(lowest(i), max);
+		}
+		return max;
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+
+	private static int bucket(long value) {
+		if (value < 2 * SUB) { return (int)value; }
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return shift * SUB + (int)(value >>> shift);
+	}
+
+	private static long lowest(int bucket) {
+		if (bucket < 2 * SUB) { return bucket; }
+
+		int shift = bucket / SUB - 1;
+		return (long)(bucket - shift * SUB) << shift;
+	}
+}
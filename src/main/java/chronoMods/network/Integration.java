@@ -4,13 +4,20 @@ import chronoMods.TogetherManager;
 import com.badlogic.gdx.graphics.Texture;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 
 public interface Integration {
 
+	// Largest datagram we will hand to sendPacket, to stay under the MTU threshold. Bigger messages are fragmented to fit.
+	int MAX_PACKET_SIZE = 1200;
+
 	// Initialize the integration
 	void initialize();
 	boolean isInitialized();
 
+	// Whether getPacket and sendPacket may be called from the NetworkThread instead of the game loop
+	boolean isThreadSafe();
+
 	// Create Current User
 	RemotePlayer makeCurrentUser();
 
@@ -25,11 +32,19 @@ public interface Integration {
 	void getLobbies();
 
 	// Run every frame. Returns `new Packet()` if no packet, returns the packet if there's a packet. Will run multiple times until an empty result is returned.
+	// Packet data should come from BufferPool.acquire, it is released back to the pool once parsed.
 	void getPacket(Packet packet);
 
-	// Send the data as a packet. All packets shuld be sent Reliably, to all players in TogetherManager.players, and the max size provided size will be less than 1200 bytes to be under the MTU threshold.
+	// Send the data as a packet. All packets shuld be sent Reliably, to all players in TogetherManager.players, and the max size provided size will be at most MAX_PACKET_SIZE to be under the MTU threshold.
+	// Anything bigger is split up by NetworkThread before it gets here, see Fragmenter.
+	// The buffer is pooled and reused as soon as this returns, so copy it if it needs to be held on to.
+	// Sending happens on the same thread that reads packets, so implementations don't need to lock between the two.
 	void sendPacket(ByteBuffer data);
 
+	// Send to only the given players, with the same guarantees and buffer rules as sendPacket
+	void sendTo(RemotePlayer player, ByteBuffer data);
+	void sendTo(Collection<RemotePlayer> players, ByteBuffer data);
+
 	// Open a direct message to the individual
 	void messageUser(RemotePlayer player);
 
@@ -0,0 +1,124 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+// Interest management for versus lobbies too big to fit on screen. Each client tells everyone whose panels it's
+// actually looking at: the top of the ranking, the players either side of it, and whoever's deck it has open.
+// Those players send it every State delta, everyone else only sends it a summary every few seconds.
+public class Interest {
+
+	// Lobbies up to this size fit on screen, so everyone just gets everything
+	public static int threshold = 6;
+	// Ranks that are drawn and clickable, matching RemotePlayerWidget
+	public static int visibleRanks = 7;
+	// How many players above and below us we follow closely
+	public static int neighbours = 2;
+
+	public static long summaryMillis = 2000L;
+	// Interest is sent again now and then, for anyone who joined since or missed it
+	public static long refreshMillis = 5000L;
+	private static long lastSent = 0L;
+
+	// Who we want full updates from, by account ID
+	private static HashSet<Long> wanted = new HashSet();
+	private static HashSet<Long> scratch = new HashSet();
+
+	// Whether each player wants our full updates. Players we've heard nothing from get them, as older versions never ask.
+	private static HashMap<Long, Boolean> watchers = new HashMap();
+
+	private static ArrayList<RemotePlayer> subscribers = new ArrayList();
+	private static ArrayList<RemotePlayer> bystanders = new ArrayList();
+
+	public static boolean isActive() {
+		return NetworkHelper.embarked
+			&& TogetherManager.gameMode == TogetherManager.mode.Versus
+			&& TogetherManager.players.size() > threshold
+			&& !Relay.isEnabled();
+	}
+
+	// Run once per frame by NetworkHelper.flush, sends our interest when it changes
+	public static void update() {
+		if (!isActive()) { return; }
+
+		scratch.clear();
+		RemotePlayer self = TogetherManager.getCurrentUser();
+		for (RemotePlayer player : TogetherManager.players) {
+			if (player.widget == null) { continue; }
+
+			int rank = player.widget.rank;
+			if (rank < visibleRanks || Math.abs(rank - self.ranking) <= neighbours)
+				scratch.add(player.getAccountID());
+		}
+
+		RemotePlayer viewing = TogetherManager.playerDeckViewScreen.viewing();
+		if (viewing != null)
+			scratch.add(viewing.getAccountID());
+
+		long now = System.currentTimeMillis();
+		if (scratch.equals(wanted) && now - lastSent < refreshMillis) { return; }
+
+		// Bring the card lists of anyone we just started watching up to date
+		for (RemotePlayer player : TogetherManager.players)
+			if (player.widget != null && player.widget.cardsStale && scratch.contains(player.getAccountID()) && !wanted.contains(player.getAccountID()))
+				player.widget.updateCardDisplay();
+
+		HashSet<Long> swap = wanted;
+		wanted = scratch;
+		scratch = swap;
+
+		lastSent = now;
+		NetworkHelper.sendData(NetworkHelper.dataType.Interest);
+	}
+
+	public static HashSet<Long> getWanted() {
+		return wanted;
+	}
+
+	public static boolean wants(RemotePlayer player) {
+		return !isActive() || wanted.contains(player.getAccountID());
+	}
+
+	// Another player told us whether they want our full updates
+	public static void watched(RemotePlayer player, boolean watching) {
+		Boolean was = watchers.put(player.getAccountID(), watching);
+
+		// They only have our last summary, so send them everything on the next tick
+		if (watching && was != null && !was)
+			PlayerState.markAll();
+	}
+
+	public static boolean isWatching(RemotePlayer player) {
+		if (player.isUser(TogetherManager.currentUser)) { return true; }
+
+		Boolean watching = watchers.get(player.getAccountID());
+		return watching == null || watching;
+	}
+
+	// Everyone who gets our full State updates, ourselves included
+	public static ArrayList<RemotePlayer> subscribers() {
+		subscribers.clear();
+		for (RemotePlayer player : TogetherManager.players)
+			if (isWatching(player))
+				subscribers.add(player);
+		return subscribers;
+	}
+
+	// Everyone who only gets summaries
+	public static ArrayList<RemotePlayer> bystanders() {
+		bystanders.clear();
+		for (RemotePlayer player : TogetherManager.players)
+			if (!isWatching(player))
+				bystanders.add(player);
+		return bystanders;
+	}
+
+	public static void clear() {
+		wanted.clear();
+		watchers.clear();
+		lastSent = 0L;
+	}
+}
@@ -19,12 +19,15 @@ public abstract class Lobby {
 	public boolean heart;
 	public boolean neow;
 	public boolean ironman;
+	// Members send through the owner instead of to everyone, see Relay
+	public boolean relay;
 
 	public int capacity = 6;
 	public int members = 0;
 
 	public ArrayList<String> memberNames = new ArrayList();
     public CopyOnWriteArrayList<RemotePlayer> players = new CopyOnWriteArrayList();
+	public PlayerRegistry registry = new PlayerRegistry();
 
     public Lobby(Integration service) {
     	this.service = service;
@@ -40,6 +43,7 @@ public abstract class Lobby {
  		heart = Boolean.parseBoolean(getMetadata("heart"));
  		neow = Boolean.parseBoolean(getMetadata("neow"));
  		ironman = Boolean.parseBoolean(getMetadata("ironman"));
+ 		relay = Boolean.parseBoolean(getMetadata("relay"));
  		capacity = getCapacity();
  		members = getMemberCount();
  	}
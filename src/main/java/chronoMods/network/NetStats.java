@@ -0,0 +1,145 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+import com.evacipated.cardcrawl.modthespire.lib.SpireConfig;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+
+// Counts what goes over the wire, per dataType and per player. Everything here is touched from the game loop only.
+// Recording is off until the overlay is opened, so a normal run pays a single branch per message.
+public class NetStats {
+
+	public static boolean enabled = TogetherManager.debug;
+
+	public static class TypeStats {
+		public long sent, sentBytes;
+		public long received, receivedBytes;
+		public Histogram encodeNanos = new Histogram();
+		public Histogram decodeNanos = new Histogram();
+
+		public long totalBytes() { return sentBytes + receivedBytes; }
+	}
+
+	public static TypeStats[] types = new TypeStats[NetworkHelper.dataType.values().length];
+	static {
+		for (int i = 0; i < types.length; i++)
+			types[i] = new TypeStats();
+	}
+
+	// Datagrams as handed to and read from the service, after batching
+	public static long datagramsSent, datagramBytesSent;
+	public static long datagramsReceived, datagramBytesReceived;
+
+	// Sampled once a frame
+	public static Histogram incomingDepth = new Histogram();
+	public static Histogram outgoingDepth = new Histogram();
+
+	// Round trip times keyed by account ID
+	public static HashMap<Long, Histogram> rttNanos = new HashMap();
+
+	// How often to ping everyone while recording
+	public static long pingMillis = 1000L;
+	private static long lastPing = 0L;
+
+	public static void sent(NetworkHelper.dataType type, int bytes, long encodeNanos) {
+		if (!enabled) { return; }
+		TypeStats stats = types[type.ordinal()];
+		stats.sent++;
+		stats.sentBytes += bytes;
+		stats.encodeNanos.record(encodeNanos);
+	}
+
+	public static void received(int type, int bytes, long decodeNanos) {
+		if (!enabled || type < 0 || type >= types.length) { return; }
+		TypeStats stats = types[type];
+		stats.received++;
+		stats.receivedBytes += bytes;
+		stats.decodeNanos.record(decodeNanos);
+	}
+
+	public static void datagramSent(int bytes) {
+		if (!enabled) { return; }
+		datagramsSent++;
+		datagramBytesSent += bytes;
+	}
+
+	public static void datagramReceived(int bytes) {
+		if (!enabled) { return; }
+		datagramsReceived++;
+		datagramBytesReceived += bytes;
+	}
+
+	public static void rtt(RemotePlayer player, long nanos) {
+		if (!enabled) { return; }
+		Histogram histogram = rttNanos.get(player.getAccountID());
+		if (histogram == null) {
+			histogram = new Histogram();
+			rttNanos.put(player.getAccountID(), histogram);
+		}
+		histogram.record(nanos);
+	}
+
+	// Called once a frame, before the batch is flushed
+	public static void tick() {
+		if (!enabled) { return; }
+
+		incomingDepth.record(NetworkHelper.network.incoming.size());
+		outgoingDepth.record(NetworkHelper.network.outgoing.size());
+
+		long now = System.currentTimeMillis();
+		if (now - lastPing >= pingMillis) {
+			lastPing = now;
+			NetworkHelper.sendData(NetworkHelper.dataType.Ping);
+		}
+	}
+
+	public static void reset() {
+		for (TypeStats stats : types) {
+			stats.sent = stats.sentBytes = stats.received = stats.receivedBytes = 0;
+			stats.encodeNanos.reset();
+			stats.decodeNanos.reset();
+		}
+		datagramsSent = datagramBytesSent = datagramsReceived = datagramBytesReceived = 0;
+		incomingDepth.reset();
+		outgoingDepth.reset();
+		rttNanos.clear();
+	}
+
+	// Writes everything recorded so far next to the mod's config, one row per dataType and then one per player
+	public static void dump() {
+		if (!enabled) { return; }
+
+		String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		String path = SpireConfig.makeFilePath(TogetherManager.MODNAME, "netstats-" + stamp, "csv");
+
+		try (PrintWriter out = new PrintWriter(path, "UTF-8")) {
+			out.println("type,sent,sent_bytes,received,received_bytes,encode_p50_ns,encode_p99_ns,encode_max_ns,decode_p50_ns,decode_p99_ns,decode_max_ns");
+			for (NetworkHelper.dataType type : NetworkHelper.dataType.values()) {
+				TypeStats s = types[type.ordinal()];
+				if (s.sent == 0 && s.received == 0) { continue; }
+				out.println(type + "," + s.sent + "," + s.sentBytes + "," + s.received + "," + s.receivedBytes + ","
+					+ s.encodeNanos.percentile(0.5) + "," + s.encodeNanos.percentile(0.99) + "," + s.encodeNanos.max + ","
+					+ s.decodeNanos.percentile(0.5) + "," + s.decodeNanos.percentile(0.99) + "," + s.decodeNanos.max);
+			}
+			out.println("datagrams," + datagramsSent + "," + datagramBytesSent + "," + datagramsReceived + "," + datagramBytesReceived);
+			out.println("incoming_depth_p99," + incomingDepth.percentile(0.99) + ",outgoing_depth_p99," + outgoingDepth.percentile(0.99));
+
+			out.println();
+			out.println("player,account,rtt_samples,rtt_p50_ns,rtt_p99_ns,rtt_max_ns");
+			for (RemotePlayer player : TogetherManager.players) {
+				Histogram rtt = rttNanos.get(player.getAccountID());
+				if (rtt == null) { continue; }
+				out.println(player.userName.replace(",", " ") + "," + player.getAccountID() + "," + rtt.count + ","
+					+ rtt.percentile(0.5) + "," + rtt.percentile(0.99) + "," + rtt.max);
+			}
+
+			TogetherManager.logger.info("Network stats written to " + path);
+		} catch (IOException e) {
+			TogetherManager.logger.info("Couldn't write network stats: " + e);
+		}
+	}
+}
@@ -2,11 +2,8 @@ package chronoMods.network;
 
 import basemod.ReflectionHacks;
 import chronoMods.TogetherManager;
-import chronoMods.bingo.BingoPanelCompleteNotification;
 import chronoMods.bingo.Caller;
-import chronoMods.bingo.SendBingoPatches;
 import chronoMods.coop.*;
-import chronoMods.coop.drawable.MapCanvas;
 import chronoMods.coop.hardmode.HardModeHeart;
 import chronoMods.coop.hardmode.HearthOption;
 import chronoMods.coop.hardmode.StrangeFlame;
@@ -14,15 +11,16 @@ import chronoMods.coop.infusions.InfusionHelper;
 import chronoMods.coop.infusions.InfusionReward;
 import chronoMods.coop.infusions.InfusionSet;
 import chronoMods.coop.relics.*;
+import chronoMods.network.codec.PacketCodec;
+import chronoMods.network.codec.PacketCodecs;
 import chronoMods.network.discord.DiscordIntegration;
+import chronoMods.network.lan.LanIntegration;
 import chronoMods.network.steam.SteamIntegration;
-import chronoMods.ui.deathScreen.EndScreenBingoVictory;
 import chronoMods.ui.deathScreen.EndScreenCoopLoss;
 import chronoMods.ui.deathScreen.NewDeathScreenPatches;
 import chronoMods.ui.deathScreen.customMetrics;
-import chronoMods.ui.hud.BingoPlayerWidget;
 import chronoMods.ui.hud.TopPanelPlayerPanels;
-import chronoMods.ui.hud.VersusTimer;
+import chronoMods.ui.hud.WidgetRanking;
 import chronoMods.ui.lobby.NewGameScreen;
 import chronoMods.ui.mainMenu.NewMenuButtons;
 import com.badlogic.gdx.files.FileHandle;
@@ -30,7 +28,6 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Gdx2DPixmap;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
 import com.evacipated.cardcrawl.modthespire.Loader;
 import com.evacipated.cardcrawl.modthespire.lib.SpirePatch;
 import com.megacrit.cardcrawl.actions.AbstractGameAction;
@@ -50,14 +47,11 @@ import com.megacrit.cardcrawl.rewards.RewardItem;
 import com.megacrit.cardcrawl.rooms.AbstractRoom;
 import com.megacrit.cardcrawl.rooms.CampfireUI;
 import com.megacrit.cardcrawl.rooms.RestRoom;
-import com.megacrit.cardcrawl.screens.DungeonMapScreen;
 import com.megacrit.cardcrawl.screens.mainMenu.MainMenuScreen;
 import com.megacrit.cardcrawl.ui.DialogWord;
 import com.megacrit.cardcrawl.vfx.ObtainKeyEffect;
 import com.megacrit.cardcrawl.vfx.SpeechTextEffect;
 import com.megacrit.cardcrawl.vfx.cardManip.ShowCardAndObtainEffect;
-import com.megacrit.cardcrawl.vfx.combat.DamageNumberEffect;
-import com.megacrit.cardcrawl.vfx.combat.HealNumberEffect;
 import downfall.patches.EvilModeCharacterSelect;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -66,6 +60,7 @@ import java.io.IOException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -103,6 +98,18 @@ public class NetworkHelper {
 		else {
 			TogetherManager.log("Discord Integration not found.");
 		}
+		// LAN only needs a socket, so it's nearly always there
+		LanIntegration lan = new LanIntegration();
+		lan.initialize();
+		if (lan.isInitialized()) {
+			TogetherManager.log("LAN Started.");
+			networks.add(lan);
+		}
+		else {
+			TogetherManager.log("LAN Integration not found.");
+		}
+
+		network.start();
 	}
 
     @SpirePatch(clz=CardCrawlGame.class, method="update")
@@ -111,51 +118,112 @@ public class NetworkHelper {
         public static void Postfix(CardCrawlGame __instance)
         {
         	NetworkHelper.update();
+        	NetworkHelper.flush();
         }
     }
 
-    static public Packet packet = new Packet();
+    static public NetworkThread network = new NetworkThread();
+    static public PacketBatcher outgoing = new PacketBatcher();
+
+	// Time the game loop may spend parsing packets each frame, anything left over waits for the next frame
+	public static long updateBudgetNanos = 4000000L;
 
 	// Check every frame for incoming packets.
 	public static void update() {
-		if (service() == null) { return; }
+		BufferPool.checkLeaks();
+		Integration service = service();
+		if (service == null) { network.discard(); return; }
 
-		service().getPacket(packet);
+		if (!network.pumpsOffThread(service))
+			network.pump(service);
 
-		while (packet.hasPacket()) {
-
-			if (TogetherManager.currentLobby != null) 
-				parseData(packet.data(), packet.player());
-			else
+		long deadline = System.nanoTime() + updateBudgetNanos;
+		while (System.nanoTime() < deadline) {
+			Packet packet = network.incoming.poll();
+			if (packet == null)
 				return;
 
-			if (service() != null)
-				service().getPacket(packet);
-			else
+			NetStats.datagramReceived(packet.data().remaining());
+			parseData(packet.data(), packet.player());
+			network.recycle(packet);
+
+			// Parsing can leave the lobby, in which case the rest are stale
+			if (service() == null) {
+				network.discard();
 				return;
-		} 
+			}
+		}
 	}
 
 	public static void parseData(ByteBuffer data, RemotePlayer playerInfo) {
+		if (!NetStats.enabled) {
+			parseMessage(data, playerInfo);
+			return;
+		}
+
+		// Batches are timed message by message as they're unpacked
+		int enumIndex = data.getInt(0);
+		int length = data.remaining();
+		long start = System.nanoTime();
+		parseMessage(data, playerInfo);
+		if (enumIndex != dataType.Batch.ordinal())
+			NetStats.received(enumIndex, length, System.nanoTime() - start);
+	}
+
+	private static void parseMessage(ByteBuffer data, RemotePlayer playerInfo) {
 
 		int enumIndex = data.getInt();
 		if (enumIndex > dataType.values().length || enumIndex < 0) {
 			TogetherManager.log("Unknown Enum value for data type: " + enumIndex);
 			return;
 		}
+
+		// Types that own a codec skip the switch entirely
+		PacketCodec codec = PacketCodecs.get(enumIndex);
+		if (codec != null) {
+			codec.receive(data, playerInfo);
+			return;
+		}
+
 		dataType type = dataType.values()[enumIndex];
 
 		switch (type) {
 
-			case Version:
+			case Batch:
+				PacketBatcher.unpack(data, playerInfo);
+				break;
+			case Fragment:
+				ByteBuffer whole = Fragmenter.receive(data, playerInfo);
+				if (whole != null) {
+					parseData(whole, playerInfo);
+					BufferPool.release(whole);
+				}
+				break;
+			case Relayed:
+				long origin = data.getLong(4);
+				((Buffer)data).position(Relay.HEADER_SIZE);
+				ByteBuffer relayed = data.slice();
 
-				playerInfo.version = data.getFloat(4);
-				playerInfo.modHash = data.getInt(8);
-				playerInfo.safeMods = data.getInt(12) == 1 ? true : false;
+				// Straight from its origin, which is asking the owner to pass it on
+				if (playerInfo.isUser(origin)) {
+					if (Relay.isRelaying())
+						Relay.forward(relayed, playerInfo);
+					parseData(relayed, playerInfo);
+					break;
+				}
+
+				// Passed on by the owner. Our own messages, and the owner's copy of what it relayed, were already parsed
+				if (TogetherManager.currentUser.isUser(origin) || playerInfo.isUser(TogetherManager.currentUser)) { break; }
+
+				// Only the owner of a relayed lobby passes messages on, anyone else could be speaking for someone they aren't
+				if (!Relay.isEnabled() || !playerInfo.isUser(TogetherManager.currentLobby.getOwner())) {
+					TogetherManager.log("Dropping a message from " + origin + " passed on by " + playerInfo.userName + ", who isn't relaying");
+					break;
+				}
 
-				TogetherManager.log("V: " + playerInfo.version);
-				TogetherManager.log("H: " + playerInfo.modHash);
-				TogetherManager.log("S: " + playerInfo.safeMods);
+				RemotePlayer originPlayer = getPlayer(origin);
+				if (originPlayer != null)
+					parseData(relayed, originPlayer);
 				break;
 			case Rules:
 				// Backup plan for slow loaders?
@@ -236,83 +304,6 @@ public class NetworkHelper {
 				Thread st = new Thread((Runnable)startmetrics);
 				st.start();
 
-				break;
-			case Ready:
-				int start = data.getInt(4);
-				if (start == 0) {
-					playerInfo.ready = false;
-					TogetherManager.log("Unready: " + playerInfo.userName);
-				} else {
-					playerInfo.ready = true;
-					TogetherManager.log("Ready: " + playerInfo.userName);
-				}
-				break;
-			case Floor:
-				int floorNum = data.getInt(4);
-				playerInfo.floor = floorNum;
-				playerInfo.highestFloor = Math.max(floorNum, playerInfo.highestFloor);
-
-
-				playerInfo.x = data.getInt(8);
-
-				int yFloor = data.getInt(12);
-            	if (AbstractDungeon.player != null && AbstractDungeon.player.hasBlight("BlueLadder") && playerInfo.y == yFloor)
-            		AbstractDungeon.player.getBlight("BlueLadder").counter--;
-
-				playerInfo.y = data.getInt(12);
-				playerInfo.act = data.getInt(16);
-
-				TogetherManager.log("Act: " + playerInfo.act + " - Floor: " + floorNum + " - Position: " + playerInfo.x + ", " + playerInfo.y);
-				playerInfo.markMapNode();
-
-				TopPanelPlayerPanels.SortWidgets();
-
-				break;
-			case Act:
-				playerInfo.act = data.getInt(4);
-				break;
-			case Hp:
-				int Hp = data.getInt(4);
-				int maxHp = data.getInt(8);
-
-				if (AbstractDungeon.player != null) {
-					if (AbstractDungeon.player.hasBlight("MirrorTouch")) {
-
-						if (!playerInfo.isUser(TogetherManager.currentUser)) {
-							if (Hp > AbstractDungeon.player.currentHealth)
-								AbstractDungeon.topLevelEffects.add(new HealNumberEffect(playerInfo.widget.x + 64f, playerInfo.widget.y, Hp - AbstractDungeon.player.currentHealth));
-							else
-								AbstractDungeon.topLevelEffects.add(new DamageNumberEffect(AbstractDungeon.player, playerInfo.widget.x + 64f, playerInfo.widget.y, AbstractDungeon.player.currentHealth - Hp));
-						}
-
-						AbstractDungeon.player.currentHealth = Hp;
-						AbstractDungeon.player.maxHealth = maxHp;
-
-		            	AbstractDungeon.player.healthBarUpdatedEvent();
-
-		            	for (RemotePlayer playerhp : TogetherManager.players)
-		            		playerhp.hp = Hp;
-					}
-				}
-
-				playerInfo.hp = Hp;
-				playerInfo.maxHp = maxHp;
-				TogetherManager.log("Player HP: " + Hp);
-				break;
-			case Money:
-				int Money = data.getInt(4);
-
-				if (AbstractDungeon.player != null) {
-		            if (TogetherManager.gameMode == TogetherManager.mode.Coop && AbstractDungeon.player.hasBlight("DimensionalWallet")) {
-		            	AbstractDungeon.player.gold = Money;
-		            	for (RemotePlayer playergld : TogetherManager.players) {
-		            		playergld.gold = Money;
-		            	}
-		            }
-		        }
-
-				playerInfo.gold = Money;
-				TogetherManager.log("Gold: " + Money);
 				break;
 			case Character:
 				// Extract the string
@@ -353,19 +344,6 @@ public class NetworkHelper {
 				// Make the relic
 				AbstractDungeon.getCurrRoom().spawnRelicAndObtain(Settings.WIDTH/2.0f, Settings.HEIGHT/2.0f, RelicLibrary.getRelic(sentRelicID).makeCopy());
 
-				break;
-			case Finish:
-				float finishtime = data.getFloat(4);
-				playerInfo.finalTime = finishtime;
-				playerInfo.splits.get("Final").finish(finishtime);
-
-				TopPanelPlayerPanels.SortWidgets();
-
-				// Report to server - this should replace the earlier entry
-				customMetrics metrics = new customMetrics();
-				Thread t = new Thread((Runnable)metrics);
-				t.start();
-
 				break;
 			case SendCard: // Unused
 				// TogetherManager.log("Send card direct: " + stringOuts);
@@ -379,10 +357,7 @@ public class NetworkHelper {
 
 				// Get card
 				((Buffer)data).position(12);
-				byte[] bytesghost = new byte[data.remaining()];
-				data.get(bytesghost);
-
-				AbstractCard ghostOutCard = CardDataBuffer.fromJson(new String(bytesghost)).generateCard();
+				AbstractCard ghostOutCard = CardDataBuffer.read(data).generateCard();
 				TogetherManager.log("Send card ghost: " + ghostOutCard.cardID);
 
 				AbstractCard removeMe = null;
@@ -411,10 +386,7 @@ public class NetworkHelper {
 
 				// Get card
 				((Buffer)data).position(4);
-				byte[] bytesmb = new byte[data.remaining()];
-				data.get(bytesmb);
-
-				AbstractCard bottleOutCard = CardDataBuffer.fromJson(new String(bytesmb)).generateCard();
+				AbstractCard bottleOutCard = CardDataBuffer.read(data).generateCard();
 				TogetherManager.log("Message In a Bottle card: " + bottleOutCard.cardID);
 
 				MessageInABottle.bottleCards.addToBottom(bottleOutCard);
@@ -430,10 +402,7 @@ public class NetworkHelper {
 
 				// Get card
 				((Buffer)data).position(12);
-				byte[] bytesc = new byte[data.remaining()];
-				data.get(bytesc);
-
-				AbstractCard transferOutCard = CardDataBuffer.fromJson(new String(bytesc)).generateCard();
+				AbstractCard transferOutCard = CardDataBuffer.read(data).generateCard();
 				TogetherManager.log("Transfer card: " + transferOutCard.cardID);
 
 				// Creat RewardItem
@@ -505,34 +474,6 @@ public class NetworkHelper {
 					if (AbstractDungeon.player.potions.get(potslotb) instanceof PotionSlot) 
 		            	AbstractDungeon.player.obtainPotion(potslotb, PotionHelper.getPotion(stringOutb));
 
-				break;
-			case Splits:
-				int actNum = data.getInt(4);
-				float playtime = data.getFloat(8);
-
-				TogetherManager.log("Splits, Act: " + (actNum-1) + " - " + VersusTimer.returnTimeString(playtime));
-				switch (actNum) {
-					case 1:
-						playerInfo.splits.get("Act 1").activate(AbstractDungeon.bossKey);
-						break;
-					case 2:
-						playerInfo.splits.get("Act 1").finish(playtime);
-						playerInfo.splits.get("Act 2").activate(AbstractDungeon.bossKey);
-						break;
-					case 3:
-						playerInfo.splits.get("Act 2").finish(playtime);
-						playerInfo.splits.get("Act 3").activate(AbstractDungeon.bossKey);
-						break;
-					case 4:
-						playerInfo.splits.get("Act 3").finish(playtime);
-						playerInfo.splits.get("Final").activate(AbstractDungeon.bossKey);
-						break;
-					default:
-						playerInfo.splits.get("Final").finish(playtime);
-						break;
-				}
-
-				TopPanelPlayerPanels.SortWidgets();
 				break;
 			case ClearRoom:
 				int xc = data.getInt(4);
@@ -705,7 +646,7 @@ public class NetworkHelper {
 		            AbstractDungeon.screen = NewDeathScreenPatches.Enum.RACEEND;
 					}
 
-					NetworkHelper.sendData(NetworkHelper.dataType.Hp);
+					PlayerState.mark(PlayerState.HEALTH);
 				break;
 			case Kick:
 				long steamIDk = data.getLong(4);
@@ -789,26 +730,6 @@ public class NetworkHelper {
 					break;
 			case ModifyBrainFreeze:
 				AbstractDungeon.player.getBlight("BrainFreeze").counter += data.getInt(4);
-				break;
-			case DrawMap:
-				if (playerInfo.isUser(TogetherManager.currentUser)) { break; }
-
-				float xSize = playerInfo.drawable[playerInfo.act-1].pixmap.getWidth();
-				float ySize = playerInfo.drawable[playerInfo.act-1].pixmap.getHeight();
-
-				Vector2 curr = new Vector2(data.getFloat(4)  * xSize, data.getFloat(8)  * ySize);
-				Vector2 last = new Vector2(data.getFloat(12) * xSize, data.getFloat(16) * ySize);
-
-				playerInfo.drawable[playerInfo.act-1].brushSize = data.getFloat(20);
-				float offset = data.getFloat(24) * ySize;
-
-				if (last.x == 0f && last.y == 0f)
-					playerInfo.drawable[playerInfo.act-1].draw(curr, offset);
-				else
-					playerInfo.drawable[playerInfo.act-1].drawLerped(curr, last, offset);
-
-				playerInfo.drawable[playerInfo.act-1].dirty = true;
-
 				break;
 			case ClearMap:
 				if (playerInfo.isUser(TogetherManager.currentUser)) { break; }
@@ -817,47 +738,6 @@ public class NetworkHelper {
 
 				playerInfo.drawable[playerInfo.act-1].clear();
 				break;
-			case DeckInfo:
-				playerInfo.cards = data.getInt(4);
-				playerInfo.upgrades = data.getInt(8);
-
-				// Get upgrade
-				int updateDeckCard = data.getInt(12);
-				int removeDeckCard = data.getInt(16);
-
-				// Get card
-				((Buffer)data).position(20);
-				byte[] bytesDeckInfo = new byte[data.remaining()];
-				data.get(bytesDeckInfo);
-
-				CardDataBuffer bufferCard = CardDataBuffer.fromJson(new String(bytesDeckInfo));
-				AbstractCard deckInfoOutCard = bufferCard.generateCard();
-				TogetherManager.log("Update Deck Cards: " + updateDeckCard + ", " + removeDeckCard + " - " + deckInfoOutCard.toString());
-
-				AbstractCard removeMeFromDeck = null;
-				// Add it to the deck
-				if (updateDeckCard > 0) {
-					for (AbstractCard c : playerInfo.deck.group)
-						if (bufferCard.isCard(c) && !c.upgraded)
-							c.upgrade();
-
-				} else if (removeDeckCard > 0) {
-					for (AbstractCard c : playerInfo.deck.group) {
-						if (bufferCard.isCard(c) && c.timesUpgraded == deckInfoOutCard.timesUpgraded)
-							removeMeFromDeck = c;
-					}
-					playerInfo.deck.removeCard(removeMeFromDeck);
-				} else { 
-	            	playerInfo.deck.addToBottom(deckInfoOutCard);
-				}
-
-				if (playerInfo.widget != null)
-					playerInfo.widget.updateCardDisplay();
-
-				break;
-			case RelicInfo:
-				playerInfo.relics = data.getInt(4);
-				break;
 			case RequestVersion:
 				sendData(dataType.Version);
 				break;
@@ -924,27 +804,6 @@ public class NetworkHelper {
 
 	            // Add Reward to Packages for pickup
 	            TogetherManager.getCurrentUser().packages.add(transferItemBooster);
-				break;
-			case Bingo:
-				for (RemotePlayer bingoUser : TogetherManager.players) {
-					boolean marked = Caller.markCard(playerInfo, data.getInt(4));
-
-					int victory = Caller.isWin(playerInfo.bingoCard);
-					if (victory > 0) {
-						((BingoPlayerWidget)playerInfo.widget).winningLine = victory;
-			            NewDeathScreenPatches.EndScreenBase = new EndScreenBingoVictory(AbstractDungeon.getCurrRoom().monsters, playerInfo);
-			            AbstractDungeon.screen = NewDeathScreenPatches.Enum.RACEEND;
-			        }
-
-					if (marked) {
-						((BingoPlayerWidget)playerInfo.widget).flash();
-
-						if (bingoUser.team == playerInfo.team) {
-							Caller.notifications.add(new BingoPanelCompleteNotification(data.getInt(4), playerInfo));
-						}
-					}
-				}
-
 				break;
 			case BingoRules:
 				// Select the difficulty
@@ -996,13 +855,6 @@ public class NetworkHelper {
 					}
 				}
 
-				break;
-			case BingoCard:
-				for (int x = 0; x < 5; x++) {
-					for (int y = 0; y < 5; y++) {
-						playerInfo.bingoCardIndices[x][y] = data.getInt((x*5+y)*4 + 4);
-					}
-				}
 				break;
 			case CustomMark:
 				((Buffer)data).position(4);
@@ -1045,21 +897,15 @@ public class NetworkHelper {
 				float chanceDecrement = MathUtils.clamp(TogetherManager.players.size()-2 * 0.1f, 0f, 0.5f);
 				if (MathUtils.randomBoolean(1.0f - chanceDecrement)) { return; }
 
-				// Get upgrade
-				int upgradebs = data.getInt(4);
-				int miscbs = data.getInt(8);
-
-				// Extract the string
-				((Buffer)data).position(12);
-				byte[] bytesbs = new byte[data.remaining()];
-				data.get(bytesbs);
-				String stringOutbs = new String(bytesbs);
+				// Get card
+				((Buffer)data).position(4);
+				CardDataBuffer bufferbs = CardDataBuffer.read(data);
 
-				TogetherManager.log("Send card blunt scissors: " + stringOutbs);
+				TogetherManager.log("Send card blunt scissors: " + bufferbs.cardID);
 
 				// Add the card and update text
 				if (AbstractDungeon.player.hasBlight("BluntScissors")) {
-					((BluntScissors)AbstractDungeon.player.getBlight("BluntScissors")).cardsToMerge.add(CardLibrary.getCopy(stringOutbs, upgradebs, miscbs));
+					((BluntScissors)AbstractDungeon.player.getBlight("BluntScissors")).cardsToMerge.add(CardLibrary.getCopy(bufferbs.cardID, bufferbs.timesUpgraded, bufferbs.misc));
 					((BluntScissors)AbstractDungeon.player.getBlight("BluntScissors")).updateDescription();
 				}
 
@@ -1067,13 +913,11 @@ public class NetworkHelper {
 			case MergeUncommon:
 				if (playerInfo.isUser(TogetherManager.currentUser)) { break; }
 
-				// Extract the string
+				// Get card
 				((Buffer)data).position(4);
-				byte[] bytesmu = new byte[data.remaining()];
-				data.get(bytesmu);
-				String stringOutmu = new String(bytesmu);
+				CardDataBuffer buffermu = CardDataBuffer.read(data);
 
-				AbstractCard theirCard = CardLibrary.getCopy(stringOutmu, 0, 0);
+				AbstractCard theirCard = CardLibrary.getCopy(buffermu.cardID, 0, 0);
 				CoopNeowReward.mergeWaitCard = theirCard;
 				break;
 			case Infusion:
@@ -1110,34 +954,87 @@ public class NetworkHelper {
 
     public static enum dataType
     {
-      	Rules, Start, Ready, Version, Floor, Act, Hp, Money, BossRelic, Finish, SendCard, SendCardGhost, TransferCard, TransferRelic, TransferPotion, UsePotion, SendPotion, EmptyRoom, BossChosen, Splits, SetDisplayRelics, ClearRoom, LockRoom, ChooseNeow, ChooseTeamRelic, LoseLife, Kick, GetRedKey, GetBlueKey, GetGreenKey, Character, GetPotion, AddPotionSlot, SendRelic, ModifyBrainFreeze, DrawMap, ClearMap, DeckInfo, RelicInfo, RequestVersion, SendCardMessageBottle, AtDoor, Victory, TransferBooster, Bingo, BingoRules, TeamChange, BingoCard, TeamName, CustomMark, LastBoss, SendMessage, BluntScissorCard, MergeUncommon, Infusion, HeartChoice;
+      	Rules, Start, Ready, Version, State, BossRelic, Finish, SendCard, SendCardGhost, TransferCard, TransferRelic, TransferPotion, UsePotion, SendPotion, EmptyRoom, BossChosen, Splits, SetDisplayRelics, ClearRoom, LockRoom, ChooseNeow, ChooseTeamRelic, LoseLife, Kick, GetRedKey, GetBlueKey, GetGreenKey, Character, GetPotion, AddPotionSlot, SendRelic, ModifyBrainFreeze, DrawMapStroke, ClearMap, DeckInfo, RequestVersion, SendCardMessageBottle, AtDoor, Victory, TransferBooster, Bingo, BingoRules, TeamChange, BingoCard, TeamName, CustomMark, LastBoss, SendMessage, BluntScissorCard, MergeUncommon, Infusion, HeartChoice, Batch, Ping, Relayed, Interest, Fragment, DeckRequest, DeckSnapshot;
       
     	private dataType() {}
     }
 
+	// Messages are held until the end of the frame so they can share datagrams
 	public static void sendData(NetworkHelper.dataType type) {
+		sendDataTo(type, recipient(type));
+	}
+
+	// Sends to one player only, or everyone if target is null
+	public static void sendDataTo(NetworkHelper.dataType type, RemotePlayer target) {
+		if (service() == null) { return; }
+
+		long start = NetStats.enabled ? System.nanoTime() : 0L;
 		ByteBuffer data = NetworkHelper.generateData(type);	
 		if (data == null) { return; }
 
-		service().sendPacket(data);
+		if (NetStats.enabled)
+			NetStats.sent(type, data.remaining(), System.nanoTime() - start);
+		outgoing.queue(data, target);
+	}
+
+	// Sends one message to each of the given players. It's encoded once and the service sends the same buffer to each.
+	public static void sendDataTo(NetworkHelper.dataType type, Collection<RemotePlayer> targets) {
+		if (service() == null || targets.isEmpty()) { return; }
+
+		long start = NetStats.enabled ? System.nanoTime() : 0L;
+		ByteBuffer data = NetworkHelper.generateData(type);
+		if (data == null) { return; }
+
+		if (NetStats.enabled)
+			NetStats.sent(type, data.remaining(), System.nanoTime() - start);
+
+		// The caller's list may be refilled before the network thread gets to it
+		outgoing.queue(data, new ArrayList<RemotePlayer>(targets));
+	}
+
+	// Packets only their recipient acts on. The recipient ID stays in the payload so broadcasts from older versions are still filtered.
+	// Kick and the keys are not here, everyone updates their player list from those.
+	private static RemotePlayer recipient(NetworkHelper.dataType type) {
+		switch (type) {
+			case SendRelic:
+				return Dimensioneel.sendPlayer;
+			case TransferCard:
+			case TransferRelic:
+			case TransferPotion:
+				return TogetherManager.courierScreen.getRecipient();
+			default:
+				return null;
+		}
+	}
+
+	// Sends everything queued by sendData this frame
+	public static void flush() {
+		Interest.update();
+		PlayerState.tick();
+		NetStats.tick();
+
+		Integration service = service();
+		Relay.flushed();
+		outgoing.flush(service);
+
+		if (service != null && !network.pumpsOffThread(service))
+			network.pump(service);
 	}
 
 	private static ByteBuffer generateData(NetworkHelper.dataType type) {
+		PacketCodec codec = PacketCodecs.get(type);
+		if (codec != null)
+			return codec.generate();
+
 		ByteBuffer data;
 
 		switch (type) {
 
 			// Packets used by both
-			case Version:
-				data = ByteBuffer.allocateDirect(36);
-				data.putFloat(4, TogetherManager.VERSION);
-				data.putInt(8, TogetherManager.modHash);
-				data.putInt(12, TogetherManager.safeMods ? 1 : 0);
-				break;
 			case Rules:
         		if (!TogetherManager.currentLobby.isOwner()) { return null; }
 
-				data = ByteBuffer.allocateDirect(44 + NewMenuButtons.customScreen.getActiveModData().size());
+				data = BufferPool.acquire(44 + NewMenuButtons.customScreen.getActiveModData().size());
 				// Rules are character, ascension, seed
 				data.putInt(4, NewMenuButtons.newGameScreen.characterSelectWidget.getChosenOption());
 
@@ -1171,46 +1068,14 @@ public class NetworkHelper {
 				updateLobbyData();
 				break;
 			case Start:
-				data = ByteBuffer.allocateDirect(8);
+				data = BufferPool.acquire(8);
 				data.putInt(4, 1);
 				break;
-			case Ready:
-				data = ByteBuffer.allocateDirect(8);
-				TogetherManager.log("Sending ready state: " + TogetherManager.getCurrentUser().userName + ", " + TogetherManager.getCurrentUser().ready);
-
-				if (TogetherManager.getCurrentUser().ready) {
-					TogetherManager.log("Sent Ready");
-					data.putInt(4, 1);
-				} else {
-					TogetherManager.log("Sent Unready");
-					data.putInt(4, 0);
-				}
-				break;
-			case Floor:
-				data = ByteBuffer.allocateDirect(20);
-				data.putInt(4, AbstractDungeon.floorNum);
-				data.putInt(8, AbstractDungeon.getCurrMapNode().x);
-				data.putInt(12, AbstractDungeon.getCurrMapNode().y);
-				data.putInt(16, AbstractDungeon.actNum);
-				break;
-			case Act:
-				data = ByteBuffer.allocateDirect(8);
-				data.putInt(4, AbstractDungeon.actNum);
-				break;
-			case Hp:
-				data = ByteBuffer.allocateDirect(12);
-				data.putInt(4, AbstractDungeon.player.currentHealth);
-				data.putInt(8, AbstractDungeon.player.maxHealth);
-				break;
-			case Money:
-				data = ByteBuffer.allocateDirect(8);
-				data.putInt(4, AbstractDungeon.player.gold);
-				break;
 			case Character:
-				data = ByteBuffer.allocateDirect(8);
+				data = BufferPool.acquire(8);
 				data.putInt(4, NewMenuButtons.newGameScreen.characterSelectWidget.getChosenOption());
 				// String characterName = NewMenuButtons.newGameScreen.characterSelectWidget.getChosenOptionLocalizedName();
-				// data = ByteBuffer.allocateDirect(4 + characterName.getBytes().length);
+				// data = BufferPool.acquire(4 + characterName.getBytes().length);
 
 				// ((Buffer)data).position(4);
 				// data.put(characterName.getBytes());
@@ -1228,57 +1093,46 @@ public class NetworkHelper {
 				if (relicID.length() > 1) {
 					relicID = relicID.substring(0, relicID.length() - 1);
 				}
-				data = ByteBuffer.allocateDirect(4 + relicID.getBytes().length);
+				data = BufferPool.acquire(4 + relicID.getBytes().length);
 
 				((Buffer)data).position(4);
 				data.put(relicID.getBytes());
 				((Buffer)data).rewind();
 				break;
 			case SendRelic:
-				data = ByteBuffer.allocateDirect(12 + Dimensioneel.relicID.getBytes().length);
+				data = BufferPool.acquire(12 + Dimensioneel.relicID.getBytes().length);
 				data.putLong(4, Dimensioneel.sendPlayer.getAccountID()); // Selected recipient
 
 				((Buffer)data).position(12);
 				data.put(Dimensioneel.relicID.getBytes());
 				((Buffer)data).rewind();
 				break;
-			case Finish:
-				data = ByteBuffer.allocateDirect(8);
-				data.putFloat(4, VersusTimer.timer);
-				break;
-
-			// Versus specific
-			case Splits:
-				data = ByteBuffer.allocateDirect(12);
-				data.putInt(4, AbstractDungeon.actNum);
-				data.putFloat(8, VersusTimer.timer);
-				break;
 
 			// Coop specific packets
 			case ClearRoom:
-				data = ByteBuffer.allocateDirect(12);
+				data = BufferPool.acquire(12);
 				data.putInt(4, AbstractDungeon.getCurrMapNode().x);
 				data.putInt(8, AbstractDungeon.getCurrMapNode().y);
 				break;
 			case LockRoom:
-				data = ByteBuffer.allocateDirect(12);
+				data = BufferPool.acquire(12);
 				data.putInt(4, SendDataPatches.lockX);
 				data.putInt(8, SendDataPatches.lockY);
 				break;
 
 			case SendCard: // Unused
-				data = ByteBuffer.allocateDirect(4);
+				data = BufferPool.acquire(4);
 				break;
 			case SendCardGhost:
 				CardDataBuffer rewardghost = new CardDataBuffer(GhostWriter.sendCard);
 
-				data = ByteBuffer.allocateDirect(12 + rewardghost.getBufferSize());
+				data = BufferPool.acquire(12 + rewardghost.getBufferSize());
 
 				data.putInt(4, GhostWriter.sendUpdate ? 1 : 0);
 				data.putInt(8, GhostWriter.sendRemove ? 1 : 0);
 
 				((Buffer)data).position(12);
-				data.put(rewardghost.getBytes());
+				rewardghost.write(data);
 				((Buffer)data).rewind();
 
 				GhostWriter.sendCard = null; 
@@ -1286,10 +1140,10 @@ public class NetworkHelper {
 			case SendCardMessageBottle:
 				CardDataBuffer messageCard = new CardDataBuffer(MessageInABottle.sendCard);
 
-				data = ByteBuffer.allocateDirect(4 + messageCard.getBytes().length);
+				data = BufferPool.acquire(4 + messageCard.getBufferSize());
 
 				((Buffer)data).position(4);
-				data.put(messageCard.getBytes());
+				messageCard.write(data);
 				((Buffer)data).rewind();
 
 				MessageInABottle.sendCard = null; 
@@ -1297,12 +1151,12 @@ public class NetworkHelper {
 			case TransferCard:
 				CardDataBuffer rewardc = new CardDataBuffer(TogetherManager.courierScreen.transferCard);
 
-				data = ByteBuffer.allocateDirect(12 + rewardc.getBytes().length);
+				data = BufferPool.acquire(12 + rewardc.getBufferSize());
 
 				data.putLong(4, TogetherManager.courierScreen.getRecipient().getAccountID()); // Selected recipient
 
 				((Buffer)data).position(12);
-				data.put(rewardc.getBytes());
+				rewardc.write(data);
 				((Buffer)data).rewind();
 
 				TogetherManager.courierScreen.transferCard = null; 
@@ -1310,7 +1164,7 @@ public class NetworkHelper {
 			case TransferRelic:
 				String rewardr = TogetherManager.courierScreen.transferRelic.relicId;
 
-				data = ByteBuffer.allocateDirect(12 + rewardr.getBytes().length);
+				data = BufferPool.acquire(12 + rewardr.getBytes().length);
 
 				data.putLong(4, TogetherManager.courierScreen.getRecipient().getAccountID()); // Selected recipient
 
@@ -1323,7 +1177,7 @@ public class NetworkHelper {
 			case TransferPotion:
 				String rewardp = TogetherManager.courierScreen.transferPotion.ID;
 
-				data = ByteBuffer.allocateDirect(12 + rewardp.getBytes().length);
+				data = BufferPool.acquire(12 + rewardp.getBytes().length);
 
 				data.putLong(4, TogetherManager.courierScreen.getRecipient().getAccountID()); // Selected recipient
 
@@ -1334,13 +1188,13 @@ public class NetworkHelper {
 				TogetherManager.courierScreen.transferPotion = null; 
 				break;
 			case UsePotion:
-				data = ByteBuffer.allocateDirect(8);
+				data = BufferPool.acquire(8);
 				data.putInt(4, VaporFunnel.potSlot);
 				break;
 			case SendPotion:
 				String rewardb = VaporFunnel.potName;
 				TogetherManager.log(VaporFunnel.potName);
-				data = ByteBuffer.allocateDirect(8 + rewardb.getBytes().length);
+				data = BufferPool.acquire(8 + rewardb.getBytes().length);
 
 				data.putInt(4, VaporFunnel.potSlot); // Selected recipient
 
@@ -1349,61 +1203,61 @@ public class NetworkHelper {
 				((Buffer)data).rewind();
 				break;
 			case ChooseNeow:
-				data = ByteBuffer.allocateDirect(8);
+				data = BufferPool.acquire(8);
 				data.putInt(4, CoopNeowEvent.chosenOption);
 				break;
 			case ChooseTeamRelic:
-				data = ByteBuffer.allocateDirect(8);
+				data = BufferPool.acquire(8);
 				data.putInt(4, TogetherManager.teamRelicScreen.selectedIndex);
 				break;
 			case LoseLife:
 				if (AbstractDungeon.player.hasBlight("BondsOfFate")){
 					if (AbstractDungeon.lastCombatMetricKey != null) {
 						String killedBy = AbstractDungeon.lastCombatMetricKey;
-						data = ByteBuffer.allocateDirect(8 + killedBy.getBytes().length);
+						data = BufferPool.acquire(8 + killedBy.getBytes().length);
 						data.putInt(4, AbstractDungeon.player.getBlight("BondsOfFate").counter);
 
 						((Buffer)data).position(8);
 						data.put(killedBy.getBytes());
 						((Buffer)data).rewind();
 					} else {
-						data = ByteBuffer.allocateDirect(8);
+						data = BufferPool.acquire(8);
 						data.putInt(4, AbstractDungeon.player.getBlight("BondsOfFate").counter);
 					}
 				}
 				else if (AbstractDungeon.player.hasBlight("ChainsOfFate")) {
 					if (AbstractDungeon.lastCombatMetricKey != null) {
 						String killedBy = AbstractDungeon.lastCombatMetricKey;
-						data = ByteBuffer.allocateDirect(8 + killedBy.getBytes().length);
+						data = BufferPool.acquire(8 + killedBy.getBytes().length);
 						data.putInt(4, AbstractDungeon.player.getBlight("ChainsOfFate").counter);
 
 						((Buffer)data).position(8);
 						data.put(killedBy.getBytes());
 						((Buffer)data).rewind();
 					} else {
-						data = ByteBuffer.allocateDirect(8);
+						data = BufferPool.acquire(8);
 						data.putInt(4, AbstractDungeon.player.getBlight("ChainsOfFate").counter);
 					}
 				}
 				else {
-					data = ByteBuffer.allocateDirect(8);
+					data = BufferPool.acquire(8);
 					data.putInt(4, AbstractDungeon.player.getBlight("StringOfFate").counter);
 				}
 				break;
 			case Kick:
-				data = ByteBuffer.allocateDirect(16);
+				data = BufferPool.acquire(16);
 				data.putLong(4, NewGameScreen.kick.getAccountID());
 				break;
 			case GetRedKey:
-				data = ByteBuffer.allocateDirect(16);
+				data = BufferPool.acquire(16);
 				data.putLong(4, CoopKeySharing.redKeyPlayer.getAccountID());
 				break;
 			case GetBlueKey:
-				data = ByteBuffer.allocateDirect(16);
+				data = BufferPool.acquire(16);
 				data.putLong(4, CoopKeySharing.blueKeyPlayer.getAccountID());
 				break;
 			case GetGreenKey:
-				data = ByteBuffer.allocateDirect(16);
+				data = BufferPool.acquire(16);
 				data.putLong(4, CoopKeySharing.greenKeyPlayer.getAccountID());
 				break;
 			case GetPotion:
@@ -1415,7 +1269,7 @@ public class NetworkHelper {
 				}
 				potionsHeld = potionsHeld.substring(0, potionsHeld.length() - 1);
 
-				data = ByteBuffer.allocateDirect(8 + potionsHeld.getBytes().length);
+				data = BufferPool.acquire(8 + potionsHeld.getBytes().length);
 
 				data.putInt(4, AbstractDungeon.player.potionSlots);
 
@@ -1424,92 +1278,32 @@ public class NetworkHelper {
 				((Buffer)data).rewind();
 				break;
 			case AddPotionSlot:
-				data = ByteBuffer.allocateDirect(4);
+				data = BufferPool.acquire(4);
 				break;
 			case ModifyBrainFreeze:
-				data = ByteBuffer.allocateDirect(8);
+				data = BufferPool.acquire(8);
 				data.putInt(4, BrainFreeze.modEnergy);
 				BrainFreeze.modEnergy = 0;
 				break;
-			case DrawMap:
-				data = ByteBuffer.allocateDirect(28);
-				MapCanvas c = TogetherManager.getCurrentUser().drawable[AbstractDungeon.actNum-1];
-				if (c.pointQueue.size() == 0) { break; }
-
-				Vector2[] points = c.pointQueue.remove(0);
-				float xSize = c.pixmap.getWidth();
-				float ySize = c.pixmap.getHeight();
-
-				data.putFloat(4, points[0].x / xSize);
-				data.putFloat(8, points[0].y / ySize);
-
-				if (points[1] != null) {
-					data.putFloat(12, points[1].x / xSize);
-					data.putFloat(16, points[1].y / ySize);
-				} else {
-					data.putFloat(12, 0f);
-					data.putFloat(16, 0f);
-				}
-
-				data.putFloat(20, c.brushSize);
-				data.putFloat(24, DungeonMapScreen.offsetY / ySize);
-				break;
 			case ClearMap:
-				data = ByteBuffer.allocateDirect(4);
-				break;
-			case DeckInfo:
-				CardDataBuffer deckCard = new CardDataBuffer(SendDataPatches.sendCard);
-				TogetherManager.log("DeckInfo sent: " + deckCard.toString());
-
-				// Deck Stats.
-				data = ByteBuffer.allocateDirect(20 + deckCard.getBytes().length);
-
-				data.putInt(4, AbstractDungeon.player.masterDeck.size());
-
-				int upgraded = 0;
-			    for (AbstractCard cup : AbstractDungeon.player.masterDeck.group) {
-			    	upgraded += cup.timesUpgraded; 
-			    } 
-
-   				data.putInt(8, upgraded);
-				((Buffer)data).position(12);
-
-				// Card Update Stats
-				data.putInt(12, SendDataPatches.sendUpdate ? 1 : 0);
-				data.putInt(16, SendDataPatches.sendRemove ? 1 : 0);
-
-				((Buffer)data).position(20);
-				data.put(deckCard.getBytes());
-				((Buffer)data).rewind();
-
-				SendDataPatches.sendCard = null;
-				SendDataPatches.sendUpdate = false;
-				SendDataPatches.sendRemove = false;
-				break;
-			case RelicInfo:
-				data = ByteBuffer.allocateDirect(8);
-				data.putInt(4, AbstractDungeon.player.relics.size());
+				data = BufferPool.acquire(4);
 				break;
 			case RequestVersion:
-				data = ByteBuffer.allocateDirect(4);
+				data = BufferPool.acquire(4);
 				break;
 			case AtDoor:
-				data = ByteBuffer.allocateDirect(4);
+				data = BufferPool.acquire(4);
 				break;
 			case Victory:
-				data = ByteBuffer.allocateDirect(4);
+				data = BufferPool.acquire(4);
 				break;
 			case TransferBooster:
-				data = ByteBuffer.allocateDirect(16);
+				data = BufferPool.acquire(16);
 				data.putLong(4, TogetherManager.courierScreen.getRecipient().getAccountID()); // Selected recipient
 				data.putInt(12, TogetherManager.courierScreen.transferRarity);
 				break;
-			case Bingo:
-				data = ByteBuffer.allocateDirect(8);
-				data.putInt(4, SendBingoPatches.lastBingo);
-				break;
 			case BingoRules:
-				data = ByteBuffer.allocateDirect(28);
+				data = BufferPool.acquire(28);
 				data.putInt(4, NewMenuButtons.newGameScreen.bingoDifficulty.getSelectedIndex());
 				data.putInt(8, NewMenuButtons.newGameScreen.teamsToggle.getTicked());
 				data.putInt(12, NewMenuButtons.newGameScreen.uniqueBoardToggle.getTicked());
@@ -1521,33 +1315,22 @@ public class NetworkHelper {
 
 				break;
 			case TeamChange:
-				data = ByteBuffer.allocateDirect(8);
+				data = BufferPool.acquire(8);
 				data.putInt(4, TogetherManager.getCurrentUser().team);
 				break;
 			case TeamName:
-				data = ByteBuffer.allocateDirect(8 + TogetherManager.getCurrentUser().teamName.getBytes().length);
+				data = BufferPool.acquire(8 + TogetherManager.getCurrentUser().teamName.getBytes().length);
 				data.putInt(4, TogetherManager.getCurrentUser().team);
 
 				((Buffer)data).position(8);
 				data.put(TogetherManager.getCurrentUser().teamName.getBytes());
 				((Buffer)data).rewind();
 
-				break;
-			case BingoCard:
-				data = ByteBuffer.allocateDirect(4+4*25);
-
-				int bufferCounter = 0;
-				for (int[] row : TogetherManager.getCurrentUser().bingoCardIndices){
-					for (int value : row){
-						bufferCounter++;
-						data.putInt(bufferCounter*4, value);
-					}
-				}
 				break;
 			case CustomMark:				
 				byte[] bytes = new FileHandle(TogetherManager.config.getString("mark")).readBytes();
 
-				data = ByteBuffer.allocateDirect(4 + bytes.length);
+				data = BufferPool.acquire(4 + bytes.length);
 				// data.putLong((long)ReflectionHacks.getPrivate(ppp, Gdx2DPixmap.class, "basePtr"));
 				((Buffer)data).position(4);
 				data.put(bytes);
@@ -1555,13 +1338,13 @@ public class NetworkHelper {
 
 				break;
 			case LastBoss:
-				data = ByteBuffer.allocateDirect(4);
+				data = BufferPool.acquire(4);
 				if (StrangeFlame.isFirst())
 					StrangeFlame.fightingBoss = AbstractDungeon.actNum;
 				break;
 			case SendMessage:
                 String sndmsg = TogetherManager.chatScreen.TypingMsg;
-                data = ByteBuffer.allocateDirect(4 + (sndmsg.getBytes()).length);
+                data = BufferPool.acquire(4 + (sndmsg.getBytes()).length);
                 ((Buffer) data).position(4);
                 data.put(sndmsg.getBytes());
                 ((Buffer) data).rewind();
@@ -1576,32 +1359,29 @@ public class NetworkHelper {
                     // NetworkHelper.parseData(data, new SteamPlayer(steamUser.getSteamID()));
                 break;
             case BluntScissorCard:
-				String mergeCard = BluntScissors.cardSent.cardID;
-
-				data = ByteBuffer.allocateDirect(12 + mergeCard.getBytes().length);
+				CardDataBuffer mergeCard = new CardDataBuffer(BluntScissors.cardSent);
 
-				data.putInt(4, BluntScissors.cardSent.timesUpgraded);
-				data.putInt(8, BluntScissors.cardSent.misc);
+				data = BufferPool.acquire(4 + mergeCard.getBufferSize());
 
-				((Buffer)data).position(12);
-				data.put(mergeCard.getBytes());
+				((Buffer)data).position(4);
+				mergeCard.write(data);
 				((Buffer)data).rewind();
 
 				BluntScissors.cardSent = null; 
 				break;
 			case MergeUncommon:
 				AbstractCard cu = AbstractDungeon.player.masterDeck.group.get(AbstractDungeon.player.masterDeck.group.size()-1);
-				String mergeCardu = cu.cardID;
+				CardDataBuffer mergeCardu = new CardDataBuffer(cu);
 
-				data = ByteBuffer.allocateDirect(4 + mergeCardu.getBytes().length);
+				data = BufferPool.acquire(4 + mergeCardu.getBufferSize());
 
 				((Buffer)data).position(4);
-				data.put(mergeCardu.getBytes());
+				mergeCardu.write(data);
 				((Buffer)data).rewind();
 
 				break;
 			case Infusion:
-				data = ByteBuffer.allocateDirect(12 + TransfusionBag.set.setID.getBytes().length);
+				data = BufferPool.acquire(12 + TransfusionBag.set.setID.getBytes().length);
 				data.putLong(4, TogetherManager.courierScreen.getRecipient().getAccountID()); // Selected recipient
 				
 				((Buffer)data).position(12);
@@ -1612,11 +1392,11 @@ public class NetworkHelper {
 
 				break;
 			case HeartChoice:
-				data = ByteBuffer.allocateDirect(8);
+				data = BufferPool.acquire(8);
 				data.putInt(4, HardModeHeart.HeartChoice);
 				break;
 			default:
-				data = ByteBuffer.allocateDirect(4);
+				data = BufferPool.acquire(4);
 				break;
 		}
 
@@ -1650,6 +1430,10 @@ public class NetworkHelper {
 			metadata.put("owner", TogetherManager.currentUser.userName);
 			metadata.put("members", TogetherManager.currentLobby.getMemberNameList());
 
+			// Relaying through the owner is opt in, and only worth it for lobbies bigger than coop allows
+			TogetherManager.currentLobby.relay = TogetherManager.gameMode != TogetherManager.mode.Coop && TogetherManager.config.getBool("relay");
+			metadata.put("relay", Boolean.toString(TogetherManager.currentLobby.relay));
+
 			TogetherManager.currentLobby.setMetadata(metadata);
 		}
 	}
@@ -1675,6 +1459,12 @@ public class NetworkHelper {
 	        CardCrawlGame.mainMenuScreen.screen = MainMenuScreen.CurScreen.MAIN_MENU;
     	    CardCrawlGame.mainMenuScreen.lighten();
 
+			// Get any last messages out before the lobby goes away
+			flush();
+			network.finish(service());
+			network.discard();
+			Interest.clear();
+			Fragmenter.clear();
 
     	    TogetherManager.currentLobby.leaveLobby();
 
@@ -1691,11 +1481,13 @@ public class NetworkHelper {
 
 	public static void addPlayer(RemotePlayer player) {		
 		// Make sure we're not adding a dupe
-		for (RemotePlayer oldplayer : TogetherManager.players)
-			if (oldplayer.isUser(player))
-				return;
+		if (getPlayer(player.getAccountID()) != null)
+			return;
 
         TogetherManager.players.add(player);
+        if (TogetherManager.currentLobby != null)
+        	TogetherManager.currentLobby.registry.invalidate();
+        CardDictionary.invalidate();
         // if (TogetherManager.gameMode == TogetherManager.mode.Bingo)
         // 	TopPanelPlayerPanels.playerWidgets.add(new BingoPlayerWidget(player));
         // else
@@ -1704,6 +1496,18 @@ public class NetworkHelper {
 		TogetherManager.log("Member joined: " + player.userName);
 	}
 
+	// Finds a player by account ID, through the lobby's registry when there is a lobby
+	public static RemotePlayer getPlayer(long accountID) {
+		Lobby lobby = TogetherManager.currentLobby;
+		if (lobby != null)
+			return lobby.registry.get(accountID);
+
+		for (RemotePlayer player : TogetherManager.players)
+			if (player.isUser(accountID))
+				return player;
+		return null;
+	}
+
 	public static void removePlayer(RemotePlayer player) {
 		if (player == null) { return; }
 
@@ -1766,10 +1570,14 @@ public class NetworkHelper {
 
 			// Remove from player list
 			TogetherManager.players.remove(player);
+			if (TogetherManager.currentLobby != null)
+				TogetherManager.currentLobby.registry.invalidate();
+			CardDictionary.invalidate();
     		TogetherManager.log("Member left: " + player.userName);
 
 			// Remove the widget
 	        TopPanelPlayerPanels.playerWidgets.remove(player.widget);
+	        WidgetRanking.remove(player.widget);
 		}
 
 		int connected = 0;
@@ -0,0 +1,194 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Moves packets between the current Integration and the game loop, so reading and sending doesn't stall a frame.
+// Services that are safe to use off the main thread are pumped here, the rest are pumped by NetworkHelper each frame.
+// Either way the main thread only ever sees the rings: it offers outgoing buffers and polls incoming packets.
+public class NetworkThread implements Runnable {
+
+	public static final int CAPACITY = 1024;
+
+	// How long to sleep when there was nothing to do
+	public static final long IDLE_NANOS = 1000000L;
+
+	public RingBuffer<Packet> incoming = new RingBuffer(CAPACITY);
+	// Outgoing packets with no player or players go to everyone
+	public RingBuffer<Packet> outgoing = new RingBuffer(CAPACITY);
+
+	// Only one thread may be producing into incoming and consuming from outgoing at a time
+	private AtomicBoolean pumping = new AtomicBoolean(false);
+	private Packet scratch = new Packet();
+
+	// Emptied Packets on their way back to the side that fills each ring, so datagrams don't allocate a Packet each.
+	// A spare ring is filled by whoever consumes the ring it serves and emptied by whoever produces into it.
+	private RingBuffer<Packet> spareIncoming = new RingBuffer(CAPACITY);
+	private RingBuffer<Packet> spareOutgoing = new RingBuffer(CAPACITY);
+
+	private Thread thread;
+	private volatile boolean running = false;
+
+	public void start() {
+		if (running) { return; }
+		running = true;
+
+		thread = new Thread(this, "Spire with Friends Network");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void stop() {
+		running = false;
+		if (thread != null)
+			LockSupport.unpark(thread);
+		thread = null;
+	}
+
+	public void run() {
+		while (running) {
+			boolean busy = false;
+
+			try {
+				Integration service = NetworkHelper.service();
+				if (service != null && service.isThreadSafe())
+					busy = pump(service);
+			} catch (Exception e) {
+				TogetherManager.log("Network thread error: " + e.toString());
+				e.printStackTrace();
+			}
+
+			if (!busy)
+				LockSupport.parkNanos(IDLE_NANOS);
+		}
+	}
+
+	// Sends everything waiting in outgoing and reads until the service is empty or incoming is full.
+	// Returns true if anything was moved.
+	public boolean pump(Integration service) {
+		if (!pumping.compareAndSet(false, true)) { return false; }
+
+		boolean moved = false;
+		try {
+			for (Packet packet = outgoing.poll(); packet != null; packet = outgoing.poll()) {
+				if (packet.players() != null)
+					service.sendTo(packet.players(), packet.data());
+				else if (packet.player() == null)
+					service.sendPacket(packet.data());
+				else
+					service.sendTo(packet.player(), packet.data());
+				packet.release();
+				spareOutgoing.offer(packet);
+				moved = true;
+			}
+
+			while (!incoming.isFull()) {
+				service.getPacket(scratch);
+				if (!scratch.hasPacket())
+					break;
+
+				incoming.offer(obtain(spareIncoming, scratch.player(), scratch.data()));
+				scratch.clear();
+				moved = true;
+			}
+		} finally {
+			pumping.set(false);
+		}
+
+		return moved;
+	}
+
+	// Hands a buffer over to be sent to everyone, taking ownership of it
+	public void send(Integration service, ByteBuffer data) {
+		send(service, data, null);
+	}
+
+	// Hands a buffer over to be sent to just one player, or everyone if target is null
+	public void send(Integration service, ByteBuffer data, RemotePlayer target) {
+		send(service, data, target, null);
+	}
+
+	// Hands one buffer over to be sent to each of the given players. The collection is read on the
+	// pumping thread, so it mustn't change after this.
+	public void send(Integration service, ByteBuffer data, Collection<RemotePlayer> targets) {
+		send(service, data, null, targets);
+	}
+
+	private void send(Integration service, ByteBuffer data, RemotePlayer target, Collection<RemotePlayer> targets) {
+		if (!Fragmenter.isTooBig(data)) {
+			enqueue(service, data, target, targets);
+			return;
+		}
+
+		// Goes out in pieces, which the Fragment handler puts back together on the other side
+		int count = Fragmenter.count(data);
+		if (count > Fragmenter.MAX_FRAGMENTS) {
+			TogetherManager.log("Dropping a " + data.remaining() + " byte message, the most that can be sent is " + Fragmenter.MAX_MESSAGE_SIZE);
+			BufferPool.release(data);
+			return;
+		}
+
+		int id = Fragmenter.nextID();
+		for (int i = 0; i < count; i++)
+			enqueue(service, Fragmenter.fragment(data, id, i, count), target, targets);
+		BufferPool.release(data);
+	}
+
+	private void enqueue(Integration service, ByteBuffer data, RemotePlayer target, Collection<RemotePlayer> targets) {
+		NetStats.datagramSent(data.remaining());
+		Packet packet = obtain(spareOutgoing, target, data);
+		if (targets != null)
+			packet.set(targets, data);
+		if (outgoing.offer(packet)) { return; }
+
+		// Only happens if the sender has fallen a whole ring behind, so wait for it rather than drop a reliable message
+		while (!outgoing.offer(packet)) {
+			if (!pumpsOffThread(service))
+				pump(service);
+			else
+				LockSupport.parkNanos(IDLE_NANOS);
+		}
+	}
+
+	private static Packet obtain(RingBuffer<Packet> spares, RemotePlayer player, ByteBuffer data) {
+		Packet packet = spares.poll();
+		if (packet == null)
+			packet = new Packet();
+		packet.set(player, data);
+		return packet;
+	}
+
+	// Called by the game loop once a packet from incoming has been parsed. Its buffer goes back to the pool
+	// and the Packet is kept for the next datagram, or dropped if there are spares enough already.
+	public void recycle(Packet packet) {
+		packet.release();
+		spareIncoming.offer(packet);
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	// True when the network thread is the one pumping this service
+	public boolean pumpsOffThread(Integration service) {
+		return running && service.isThreadSafe();
+	}
+
+	// Blocks until everything handed to send has gone out, so nothing leaks into the next lobby
+	public void finish(Integration service) {
+		while (!outgoing.isEmpty()) {
+			if (!pump(service))
+				LockSupport.parkNanos(IDLE_NANOS);
+		}
+	}
+
+	// Drops everything still queued for the game loop, used when the lobby goes away
+	public void discard() {
+		for (Packet packet = incoming.poll(); packet != null; packet = incoming.poll())
+			recycle(packet);
+	}
+}
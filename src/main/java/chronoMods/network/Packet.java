@@ -1,11 +1,14 @@
 package chronoMods.network;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 
 // Wrapper class for a data packet
 public class Packet {
     private ByteBuffer data;
     private RemotePlayer player;
+    // Set instead of player for one message going to several players
+    private Collection<RemotePlayer> players;
   
     public Packet(RemotePlayer player, ByteBuffer data) {
         this.data = data;
@@ -19,11 +22,25 @@ public class Packet {
     public void clear() {
         this.data = null;
         this.player = null;
+        this.players = null;
+    }
+  
+    // Hands the buffer back to the pool once it has been parsed
+    public void release() {
+        BufferPool.release(this.data);
+        this.clear();
     }
   
     public void set(RemotePlayer player, ByteBuffer data) {
         this.data = data;
         this.player = player;
+        this.players = null;
+    }
+
+    public void set(Collection<RemotePlayer> players, ByteBuffer data) {
+        this.data = data;
+        this.player = null;
+        this.players = players;
     }
 
   	public boolean hasPacket() 
@@ -34,5 +51,6 @@ public class Packet {
   	}
 
   	public RemotePlayer player() { return player; }
+  	public Collection<RemotePlayer> players() { return players; }
   	public ByteBuffer data() { return data; }
 }
@@ -0,0 +1,181 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+
+// Collects every message generated during a frame and packs them into as few datagrams as possible.
+// A batch is laid out as [Batch ordinal][short length][message]...[short length][message]
+// Queued buffers belong to the batcher until they are handed to the NetworkThread to send.
+public class PacketBatcher {
+
+	// Batch header is the dataType int, each message is prefixed by an unsigned short length
+	public static final int HEADER_SIZE = 4;
+	public static final int LENGTH_SIZE = 2;
+
+	private ArrayList<ByteBuffer> queue = new ArrayList();
+	// Who each queued message is for, null for everyone
+	private ArrayList<RemotePlayer> targets = new ArrayList();
+	// Or the players it's for, when there's more than one
+	private ArrayList<Collection<RemotePlayer>> groups = new ArrayList();
+
+	public void queue(ByteBuffer data) {
+		queue(data, null);
+	}
+
+	// Messages for one player skip the batch, but still go out in the order they were queued
+	public void queue(ByteBuffer data, RemotePlayer target) {
+		((Buffer)data).rewind();
+		queue.add(data);
+		targets.add(target);
+		groups.add(null);
+	}
+
+	// One buffer for several players, handed to the service once rather than copied for each of them
+	public void queue(ByteBuffer data, Collection<RemotePlayer> players) {
+		((Buffer)data).rewind();
+		queue.add(data);
+		targets.add(null);
+		groups.add(players);
+	}
+
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	public void clear() {
+		for (ByteBuffer data : queue)
+			BufferPool.release(data);
+		queue.clear();
+		targets.clear();
+		groups.clear();
+	}
+
+	// Sends everything queued this frame through the given service
+	public void flush(Integration service) {
+		if (queue.isEmpty()) { return; }
+		if (service == null) { clear(); return; }
+
+		// A lone message goes out untouched, there's nothing to save by wrapping it
+		if (queue.size() == 1) {
+			if (groups.get(0) != null)
+				NetworkHelper.network.send(service, queue.get(0), groups.get(0));
+			else if (targets.get(0) == null)
+				broadcast(service, queue.get(0));
+			else
+				NetworkHelper.network.send(service, queue.get(0), targets.get(0));
+			queue.clear();
+			targets.clear();
+			groups.clear();
+			return;
+		}
+
+		ArrayList<ByteBuffer> pending = new ArrayList();
+		int size = HEADER_SIZE;
+		int limit = limit();
+
+		for (int i = 0; i < queue.size(); i++) {
+			ByteBuffer data = queue.get(i);
+			int length = data.remaining();
+
+			if (targets.get(i) != null || groups.get(i) != null) {
+				send(service, pending, size);
+				pending.clear();
+				size = HEADER_SIZE;
+
+				if (groups.get(i) != null)
+					NetworkHelper.network.send(service, data, groups.get(i));
+				else
+					NetworkHelper.network.send(service, data, targets.get(i));
+				continue;
+			}
+
+			// Too big to share a datagram, so flush what we have and send it on its own
+			if (HEADER_SIZE + LENGTH_SIZE + length > limit) {
+				send(service, pending, size);
+				pending.clear();
+				size = HEADER_SIZE;
+
+				broadcast(service, data);
+				continue;
+			}
+
+			if (size + LENGTH_SIZE + length > limit) {
+				send(service, pending, size);
+				pending.clear();
+				size = HEADER_SIZE;
+			}
+
+			pending.add(data);
+			size += LENGTH_SIZE + length;
+		}
+
+		send(service, pending, size);
+		queue.clear();
+		targets.clear();
+		groups.clear();
+	}
+
+	private static void send(Integration service, ArrayList<ByteBuffer> pending, int size) {
+		if (pending.isEmpty()) { return; }
+
+		if (pending.size() == 1) {
+			broadcast(service, pending.get(0));
+			return;
+		}
+
+		ByteBuffer batch = BufferPool.acquire(size);
+		batch.putInt(NetworkHelper.dataType.Batch.ordinal());
+		for (ByteBuffer data : pending) {
+			batch.putShort((short)data.remaining());
+			batch.put(data.duplicate());
+		}
+		((Buffer)batch).rewind();
+
+		broadcast(service, batch);
+
+		for (ByteBuffer data : pending)
+			BufferPool.release(data);
+	}
+
+	// How big a batch can get. Relayed batches get wrapped in an envelope on the way up, so leave room for it.
+	private static int limit() {
+		if (Relay.upstream() != null)
+			return Integration.MAX_PACKET_SIZE - Relay.HEADER_SIZE;
+		return Integration.MAX_PACKET_SIZE;
+	}
+
+	// Sends to everyone, or up to the lobby owner with a copy for ourselves when the lobby is relayed
+	private static void broadcast(Integration service, ByteBuffer data) {
+		RemotePlayer upstream = Relay.upstream();
+		if (upstream == null) {
+			NetworkHelper.network.send(service, data);
+			return;
+		}
+
+		NetworkHelper.network.send(service, Relay.wrap(data, TogetherManager.currentUser), upstream);
+		NetworkHelper.network.send(service, data, TogetherManager.currentUser);
+	}
+
+	// Splits a received batch back into its messages and hands each one to the parser
+	public static void unpack(ByteBuffer data, RemotePlayer playerInfo) {
+		((Buffer)data).position(HEADER_SIZE);
+
+		while (data.remaining() >= LENGTH_SIZE) {
+			int length = data.getShort() & 0xFFFF;
+			if (length > data.remaining()) {
+				TogetherManager.log("Truncated batch from " + playerInfo.userName);
+				return;
+			}
+
+			ByteBuffer message = data.slice();
+			((Buffer)message).limit(length);
+			((Buffer)data).position(data.position() + length);
+
+			NetworkHelper.parseData(message, playerInfo);
+		}
+	}
+}
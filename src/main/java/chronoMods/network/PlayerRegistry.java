@@ -0,0 +1,67 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+
+import java.util.HashMap;
+import java.util.List;
+
+// The lobby's players by account ID, so resolving who sent a packet doesn't walk the player list.
+// Lookups happen on the network thread too, so the index is never changed in place, only replaced.
+public class PlayerRegistry {
+
+	private static class Index {
+		public final List<RemotePlayer> players;
+		public final int size;
+		public final HashMap<Long, RemotePlayer> byID = new HashMap();
+		public final HashMap<Long, Integer> slots = new HashMap();
+
+		public Index(List<RemotePlayer> players) {
+			this.players = players;
+
+			int slot = 0;
+			if (players != null) {
+				for (RemotePlayer player : players) {
+					// First one wins, the same as walking the list did
+					if (!byID.containsKey(player.getAccountID())) {
+						byID.put(player.getAccountID(), player);
+						slots.put(player.getAccountID(), slot);
+					}
+					slot++;
+				}
+			}
+			this.size = slot;
+		}
+	}
+
+	private volatile Index index = new Index(null);
+
+	public RemotePlayer get(long accountID) {
+		return current().byID.get(accountID);
+	}
+
+	public boolean contains(RemotePlayer player) {
+		return current().byID.containsKey(player.getAccountID());
+	}
+
+	// Position in TogetherManager.players, or -1
+	public int indexOf(RemotePlayer player) {
+		Integer slot = current().slots.get(player.getAccountID());
+		return slot == null ? -1 : slot;
+	}
+
+	// Called on join and leave. Anything else that changes the list is caught by the check in current.
+	public void invalidate() {
+		index = new Index(null);
+	}
+
+	// Lobbies swap TogetherManager.players out wholesale as they're joined, so rebuild whenever it isn't the list we indexed
+	private Index current() {
+		Index current = index;
+		List<RemotePlayer> players = TogetherManager.players;
+		if (current.players != players || current.size != players.size()) {
+			current = new Index(players);
+			index = current;
+		}
+		return current;
+	}
+}
@@ -0,0 +1,151 @@
+package chronoMods.network;
+
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.map.MapRoomNode;
+
+import java.util.Arrays;
+
+// The replicated summary of the local player that everyone else shows in their panels.
+// Game hooks only mark fields dirty, and at most once per tick the changed fields go out in a single State packet.
+// A burst of hits in combat therefore costs one small packet carrying the final values.
+// The deck hash rides along on every State packet, so a deck that drifted out of sync is caught on the next one.
+public class PlayerState {
+
+	public static final int HP = 0;
+	public static final int MAX_HP = 1;
+	public static final int GOLD = 2;
+	public static final int FLOOR = 3;
+	public static final int X = 4;
+	public static final int Y = 5;
+	public static final int ACT = 6;
+	public static final int RELICS = 7;
+	public static final int CARDS = 8;
+	public static final int UPGRADES = 9;
+	public static final int DECK_HASH_LO = 10;
+	public static final int DECK_HASH_HI = 11;
+	public static final int FIELDS = 12;
+
+	public static final int HEALTH = bit(HP) | bit(MAX_HP);
+	public static final int POSITION = bit(FLOOR) | bit(X) | bit(Y);
+	public static final int DECK_HASH = bit(DECK_HASH_LO) | bit(DECK_HASH_HI);
+	public static final int DECK = bit(CARDS) | bit(UPGRADES) | DECK_HASH;
+	public static final int ALL = (1 << FIELDS) - 1;
+
+	// Minimum time between State packets
+	public static long tickMillis = 100L;
+	private static long lastTick = 0L;
+
+	private static int dirty = 0;
+	private static int[] sent = new int[FIELDS];
+
+	// In big lobbies players who aren't watching us get what changed since the last summary instead, see Interest
+	public static boolean summary = false;
+	private static long lastSummary = 0L;
+	private static int[] summarized = new int[FIELDS];
+
+	static {
+		Arrays.fill(sent, Integer.MIN_VALUE);
+		Arrays.fill(summarized, Integer.MIN_VALUE);
+	}
+
+	public static int bit(int field) {
+		return 1 << field;
+	}
+
+	public static boolean has(int mask, int field) {
+		return (mask & bit(field)) != 0;
+	}
+
+	public static void mark(int mask) {
+		dirty |= mask;
+	}
+
+	// Forgets what was sent, so every field goes out on the next tick
+	public static void markAll() {
+		Arrays.fill(sent, Integer.MIN_VALUE);
+		Arrays.fill(summarized, Integer.MIN_VALUE);
+		dirty = ALL;
+	}
+
+	// Run once per frame by NetworkHelper.flush, sends a State packet if anything is dirty and the tick is up
+	public static void tick() {
+		if (AbstractDungeon.player == null) { return; }
+
+		long now = System.currentTimeMillis();
+		boolean interest = Interest.isActive();
+
+		if (interest && now - lastSummary >= Interest.summaryMillis) {
+			lastSummary = now;
+			summary = true;
+			NetworkHelper.sendDataTo(NetworkHelper.dataType.State, Interest.bystanders());
+			summary = false;
+		}
+
+		if (dirty == 0) { return; }
+		if (now - lastTick < tickMillis) { return; }
+		lastTick = now;
+
+		if (interest)
+			NetworkHelper.sendDataTo(NetworkHelper.dataType.State, Interest.subscribers());
+		else
+			NetworkHelper.sendData(NetworkHelper.dataType.State);
+	}
+
+	// Fills in the current values and returns the mask of dirty fields that differ from what was last sent
+	public static int collect(int[] values) {
+		values[HP] = AbstractDungeon.player.currentHealth;
+		values[MAX_HP] = AbstractDungeon.player.maxHealth;
+		values[GOLD] = AbstractDungeon.player.gold;
+		values[FLOOR] = AbstractDungeon.floorNum;
+
+		MapRoomNode node = AbstractDungeon.getCurrMapNode();
+		values[X] = node != null ? node.x : sent[X];
+		values[Y] = node != null ? node.y : sent[Y];
+
+		values[ACT] = AbstractDungeon.actNum;
+		values[RELICS] = AbstractDungeon.player.relics.size();
+		values[CARDS] = AbstractDungeon.player.masterDeck.size();
+
+		int upgraded = 0;
+		long hash = 0L;
+		for (AbstractCard cup : AbstractDungeon.player.masterDeck.group) {
+			upgraded += cup.timesUpgraded;
+			hash += DeckSync.cardHash(cup);
+		}
+		values[UPGRADES] = upgraded;
+		values[DECK_HASH_LO] = (int)hash;
+		values[DECK_HASH_HI] = (int)(hash >>> 32);
+
+		int changed = 0;
+		if (summary) {
+			for (int i = 0; i < FIELDS; i++) {
+				if (values[i] != summarized[i]) {
+					changed |= bit(i);
+					summarized[i] = values[i];
+				}
+			}
+			return withDeckHash(changed);
+		}
+
+		for (int i = 0; i < FIELDS; i++) {
+			if (has(dirty, i) && values[i] != sent[i]) {
+				changed |= bit(i);
+				sent[i] = values[i];
+			}
+		}
+
+		dirty = 0;
+		if (changed != 0) {
+			sent[DECK_HASH_LO] = values[DECK_HASH_LO];
+			sent[DECK_HASH_HI] = values[DECK_HASH_HI];
+		}
+		return withDeckHash(changed);
+	}
+
+	// Adds the deck hash to any packet that's going out anyway, so a missed DeckInfo doesn't go unnoticed until the next deck change
+	private static int withDeckHash(int changed) {
+		if (changed == 0) { return 0; }
+		return changed | DECK_HASH;
+	}
+}
@@ -0,0 +1,108 @@
+package chronoMods.network;
+
+import chronoMods.TogetherManager;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+// Star topology for big lobbies. Clients send their broadcasts only to the lobby owner, wrapped as
+// [Relayed ordinal][long origin][datagram], plus their own copy. The owner unpacks them, drops repeats of state
+// that's already waiting to go out, and rebroadcasts the rest batched, so a client's upstream doesn't grow with the lobby.
+// Whoever currently owns the lobby relays, so a new owner takes over as soon as ownership moves.
+public class Relay {
+
+	public static final int HEADER_SIZE = 12;
+
+	// Relayed copies waiting in the outgoing batch this frame, by content, so identical state is only sent once
+	private static HashMap<Integer, ByteBuffer> queued = new HashMap();
+
+	// Set by the owner in the lobby metadata, so every member agrees on it
+	public static boolean isEnabled() {
+		Lobby lobby = TogetherManager.currentLobby;
+		return lobby != null && lobby.relay;
+	}
+
+	public static boolean isRelaying() {
+		return isEnabled() && TogetherManager.currentLobby.isOwner();
+	}
+
+	// Who our broadcasts should go to instead of everyone, null to send to everyone directly.
+	// While ownership is moving the owner may not be here, so fall back to sending directly.
+	public static RemotePlayer upstream() {
+		if (!isEnabled() || TogetherManager.currentLobby.isOwner()) { return null; }
+
+		RemotePlayer owner = TogetherManager.currentLobby.registry.get(TogetherManager.currentLobby.getOwner());
+		if (owner == null || owner.isUser(TogetherManager.currentUser)) { return null; }
+		return owner;
+	}
+
+	public static ByteBuffer wrap(ByteBuffer data, RemotePlayer origin) {
+		ByteBuffer envelope = BufferPool.acquire(HEADER_SIZE + data.remaining());
+		envelope.putInt(NetworkHelper.dataType.Relayed.ordinal());
+		envelope.putLong(origin.getAccountID());
+		envelope.put(data.duplicate());
+		((Buffer)envelope).rewind();
+		return envelope;
+	}
+
+	// Owner side, queues each message of a client's datagram to go out to everyone else
+	public static void forward(ByteBuffer data, RemotePlayer origin) {
+		if (data.getInt(0) != NetworkHelper.dataType.Batch.ordinal()) {
+			forwardMessage(data, origin);
+			return;
+		}
+
+		ByteBuffer batch = data.duplicate();
+		((Buffer)batch).position(PacketBatcher.HEADER_SIZE);
+		while (batch.remaining() >= PacketBatcher.LENGTH_SIZE) {
+			int length = batch.getShort() & 0xFFFF;
+			if (length > batch.remaining()) { return; }
+
+			ByteBuffer message = batch.slice();
+			((Buffer)message).limit(length);
+			((Buffer)batch).position(batch.position() + length);
+
+			forwardMessage(message, origin);
+		}
+	}
+
+	private static void forwardMessage(ByteBuffer message, RemotePlayer origin) {
+		ByteBuffer envelope = wrap(message, origin);
+
+		if (isState(message.getInt(0))) {
+			int key = envelope.hashCode();
+			ByteBuffer earlier = queued.get(key);
+			if (earlier != null && earlier.equals(envelope)) {
+				BufferPool.release(envelope);
+				return;
+			}
+			queued.put(key, envelope);
+		}
+
+		NetworkHelper.outgoing.queue(envelope);
+	}
+
+	// Messages that describe where a player is rather than something that happened, so a repeat changes nothing.
+	// Deltas like DeckInfo never belong here, two identical ones from the same player are two real changes.
+	private static boolean isState(int type) {
+		if (type < 0 || type >= NetworkHelper.dataType.values().length) { return false; }
+
+		switch (NetworkHelper.dataType.values()[type]) {
+			case Version:
+			case Ready:
+			case State:
+			case Character:
+			case Rules:
+			case BingoRules:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	// The batch is about to be flushed and its buffers released, so forget them
+	public static void flushed() {
+		queued.clear();
+	}
+}
@@ -3,11 +3,10 @@ package chronoMods.network;
 import chronoMods.TogetherManager;
 import chronoMods.coop.drawable.MapCanvas;
 import chronoMods.coop.hardmode.HearthOption;
+import chronoMods.ui.hud.MapVisitors;
 import chronoMods.ui.hud.RemotePlayerWidget;
 import chronoMods.ui.hud.Split;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Pixmap.Format;
 import com.badlogic.gdx.graphics.Texture;
 import com.megacrit.cardcrawl.cards.CardGroup;
 import com.megacrit.cardcrawl.characters.AbstractPlayer;
@@ -18,6 +17,7 @@ import com.megacrit.cardcrawl.relics.AbstractRelic;
 import com.megacrit.cardcrawl.rewards.RewardItem;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 
 public class RemotePlayer
@@ -44,7 +44,8 @@ public class RemotePlayer
 	public int upgrades = 0;
 
 	public float finalTime = 0F;
-	public AbstractPlayer character = CardCrawlGame.characterManager.getCharacter(AbstractPlayer.PlayerClass.IRONCLAD);
+	// The character manager doesn't exist outside the game, e.g. with LoopbackIntegration in tests
+	public AbstractPlayer character = CardCrawlGame.characterManager == null ? null : CardCrawlGame.characterManager.getCharacter(AbstractPlayer.PlayerClass.IRONCLAD);
 	public String characterCutscene = "";
 
 	public boolean emeraldKey, rubyKey, sapphireKey, act4arrived;
@@ -61,12 +62,21 @@ public class RemotePlayer
 	public float version;
 	public int modHash;
 	public boolean safeMods = true;
+	public int cardDictionaryHash;
 
 	// Master Deck Cards
 	public CardGroup deck = new CardGroup(CardGroup.CardGroupType.UNSPECIFIED);
+	// Hash of our copy of their deck, and the hash they last reported for the real one, see DeckSync
+	public long deckHash = 0L;
+	public long reportedDeckHash = 0L;
+	public long deckRequested = 0L;
+	// Hash of the last DeckSnapshot they sent us, whether or not our copy came out matching it. MIN_VALUE until one comes.
+	public long snapshotHash = Long.MIN_VALUE;
 
 	// For iterating over the taken nodes and leaving a trail
-	public ArrayList<MapNodeCoords>[] nodesTaken = (ArrayList<MapNodeCoords>[])new ArrayList[5];
+	// Visited map nodes for each act, one bit per node at nodeIndex(x, y)
+	public BitSet[] nodesTaken = new BitSet[5];
+	public static final int MAP_STRIDE = 16;
 	//public ArrayList<MapEdge>[] edgesTaken = (ArrayList<MapEdge>[])new ArrayList[5];
 	public int act = 1;
 
@@ -146,7 +156,7 @@ public class RemotePlayer
 
 		// Init the map nodes
 		for (int i = 0; i < 5; i++) { 
-        	nodesTaken[i] = new ArrayList<MapNodeCoords>();
+        	nodesTaken[i] = new BitSet();
 			// edgesTaken[i] = new ArrayList<MapEdge>();
         } 
 
@@ -194,10 +204,11 @@ public class RemotePlayer
 
 	public void createMapDrawables() {
         // This goes into Remote Player later, only for Coop
+		// Canvases are sparse, so this only reserves tile slots until someone draws
 		for (int j = 0; j < 3; j++) 
-	        drawable[j] = new MapCanvas(new Pixmap(Settings.WIDTH, Settings.HEIGHT + (int)(2300.0F * Settings.scale), Format.RGBA8888));
+	        drawable[j] = new MapCanvas(Settings.WIDTH, Settings.HEIGHT + (int)(2300.0F * Settings.scale));
 
-        drawable[3] = new MapCanvas(new Pixmap(Settings.WIDTH, Settings.HEIGHT + (int)(300.0F * Settings.scale), Format.RGBA8888));		
+        drawable[3] = new MapCanvas(Settings.WIDTH, Settings.HEIGHT + (int)(300.0F * Settings.scale));		
 
 		for (int j = 0; j < 4; j++)  {
 	        drawable[j].drawColour = this.colour;
@@ -207,25 +218,18 @@ public class RemotePlayer
 		TogetherManager.log(userName + " has set the colour to " + this.colour);
 	}
 
-	public class MapNodeCoords {
-		public int x, y;
-
-		MapNodeCoords(int x, int y) {
-			this.x = x;
-			this.y = y;
-		}
-
-		public boolean isAt(int x, int y) {
-			return (this.x == x && this.y == y);
-		}
+	// Wider than any map, so every node gets its own bit. -1 for anything off the map.
+	public static int nodeIndex(int x, int y) {
+		if (x < 0 || x >= MAP_STRIDE || y < 0) { return -1; }
+		return y * MAP_STRIDE + x;
 	}
 
 	public boolean hasNode(int act, MapRoomNode m) {
-		for (MapNodeCoords c : nodesTaken[act]) {
-			if (c.isAt(m.x, m.y))
-				return true;
-		}
-		return false;
+		return hasNode(act, nodeIndex(m.x, m.y));
+	}
+
+	public boolean hasNode(int act, int index) {
+		return index >= 0 && nodesTaken[act].get(index);
 	}
 
 	public void markMapNode() {
@@ -234,6 +238,10 @@ public class RemotePlayer
 		if (y >= 16 && TogetherManager.gameMode == TogetherManager.mode.Coop) { return; }
 		if (y == -1 || x == -1) { return; }
 
-		nodesTaken[act].add(new MapNodeCoords(x, y));
+		int index = nodeIndex(x, y);
+		if (index < 0) { return; }
+
+		nodesTaken[act].set(index);
+		MapVisitors.marked(act, index);
 	}
 }
@@ -0,0 +1,61 @@
+package chronoMods.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded single-producer single-consumer queue. Exactly one thread may offer and exactly one thread may poll,
+// which lets both sides get by with ordered writes instead of locks.
+public class RingBuffer<T> {
+
+	private final Object[] slots;
+	private final int mask;
+
+	// Next slot to read, only written by the consumer
+	private final AtomicLong head = new AtomicLong();
+	// Next slot to write, only written by the producer
+	private final AtomicLong tail = new AtomicLong();
+
+	// Capacity is rounded up to a power of two
+	public RingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		slots = new Object[size];
+		mask = size - 1;
+	}
+
+	public boolean offer(T item) {
+		long t = tail.get();
+		if (t - head.get() >= slots.length)
+			return false;
+
+		slots[(int)t & mask] = item;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	public T poll() {
+		long h = head.get();
+		if (h >= tail.get())
+			return null;
+
+		int index = (int)h & mask;
+		T item = (T)slots[index];
+		slots[index] = null;
+		head.lazySet(h + 1);
+		return item;
+	}
+
+	public int size() {
+		return (int)(tail.get() - head.get());
+	}
+
+	public boolean isEmpty() {
+		return size() <= 0;
+	}
+
+	public boolean isFull() {
+		return size() >= slots.length;
+	}
+
+	public int capacity() {
+		return slots.length;
+	}
+}
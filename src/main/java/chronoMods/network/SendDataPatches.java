@@ -27,16 +27,14 @@ public class SendDataPatches implements StartActSubscriber {
         if (TogetherManager.teamRelicScreen != null)
             TogetherManager.teamRelicScreen.isDone = false;
     
-        NetworkHelper.sendData(NetworkHelper.dataType.Hp);
-        NetworkHelper.sendData(NetworkHelper.dataType.Money);
+        PlayerState.mark(PlayerState.HEALTH | PlayerState.bit(PlayerState.GOLD));
     }
 
     @SpirePatch(clz = TopPanel.class, method="setPlayerName")
     public static class sendStartingInfo {
         public static void Postfix(TopPanel __instance) {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
-            NetworkHelper.sendData(NetworkHelper.dataType.Hp);
-            NetworkHelper.sendData(NetworkHelper.dataType.Money);
+            PlayerState.markAll();
         }
     }
 
@@ -44,7 +42,7 @@ public class SendDataPatches implements StartActSubscriber {
     public static class sendGainGold {
         public static void Postfix(AbstractPlayer __instance, int amount) {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
-        	NetworkHelper.sendData(NetworkHelper.dataType.Money);
+        	PlayerState.mark(PlayerState.bit(PlayerState.GOLD));
         }
     }
 
@@ -52,7 +50,7 @@ public class SendDataPatches implements StartActSubscriber {
     public static class sendLoseGold {
         public static void Postfix(AbstractPlayer __instance, int amount) {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
-        	NetworkHelper.sendData(NetworkHelper.dataType.Money);
+        	PlayerState.mark(PlayerState.bit(PlayerState.GOLD));
         }
     }
 
@@ -61,7 +59,7 @@ public class SendDataPatches implements StartActSubscriber {
         public static void Postfix(AbstractPlayer __instance, DamageInfo amount) {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
             if (amount.base == 0) { return; }
-        	NetworkHelper.sendData(NetworkHelper.dataType.Hp);
+        	PlayerState.mark(PlayerState.HEALTH);
         }
     }
 
@@ -70,7 +68,7 @@ public class SendDataPatches implements StartActSubscriber {
         public static void Postfix(AbstractPlayer __instance, int amount) {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
             if (amount == 0) { return; }
-        	NetworkHelper.sendData(NetworkHelper.dataType.Hp);
+        	PlayerState.mark(PlayerState.HEALTH);
         }
     }
 
@@ -79,7 +77,7 @@ public class SendDataPatches implements StartActSubscriber {
         public static void Postfix(AbstractCreature __instance, int amount, boolean showEffect) {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
             if (amount == 0) { return; }
-            NetworkHelper.sendData(NetworkHelper.dataType.Hp);
+            PlayerState.mark(PlayerState.HEALTH);
         }
     }
 
@@ -88,7 +86,7 @@ public class SendDataPatches implements StartActSubscriber {
         public static void Postfix(AbstractCreature __instance, int amount, boolean showEffect) {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
             if (amount == 0) { return; }
-            NetworkHelper.sendData(NetworkHelper.dataType.Hp);
+            PlayerState.mark(PlayerState.HEALTH);
         }
     }
 
@@ -96,7 +94,7 @@ public class SendDataPatches implements StartActSubscriber {
     public static class sendNextRoom {
         public static void Postfix(AbstractDungeon __instance, SaveFile saveFile) {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
-        	NetworkHelper.sendData(NetworkHelper.dataType.Floor);
+        	PlayerState.mark(PlayerState.POSITION | PlayerState.bit(PlayerState.ACT));
         }
     }
 
@@ -104,7 +102,7 @@ public class SendDataPatches implements StartActSubscriber {
     public static class sendNextAct {
         public static void Postfix() {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
-            NetworkHelper.sendData(NetworkHelper.dataType.Act);
+            PlayerState.mark(PlayerState.bit(PlayerState.ACT));
         }
     }
 
@@ -156,7 +154,7 @@ public class SendDataPatches implements StartActSubscriber {
     public static class RelicCountUpdate {
         public static void Postfix() {
             if (TogetherManager.gameMode == TogetherManager.mode.Normal) { return; }
-            NetworkHelper.sendData(NetworkHelper.dataType.RelicInfo);
+            PlayerState.mark(PlayerState.bit(PlayerState.RELICS));
         }
     }
 
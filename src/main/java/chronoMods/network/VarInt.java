@@ -0,0 +1,49 @@
+package chronoMods.network;
+
+import java.nio.ByteBuffer;
+
+// LEB128 style variable length integers. Small values, which is almost everything we send, take a single byte.
+public class VarInt {
+
+	public static void put(ByteBuffer data, int value) {
+		while ((value & ~0x7F) != 0) {
+			data.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		data.put((byte)value);
+	}
+
+	public static int get(ByteBuffer data) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = data.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	public static int size(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			size++;
+			value >>>= 7;
+		}
+		return size;
+	}
+
+	// Zigzag encoding keeps small negative numbers small
+	public static void putSigned(ByteBuffer data, int value) {
+		put(data, (value << 1) ^ (value >> 31));
+	}
+
+	public static int getSigned(ByteBuffer data) {
+		int raw = get(data);
+		return (raw >>> 1) ^ -(raw & 1);
+	}
+
+	public static int sizeSigned(int value) {
+		return size((value << 1) ^ (value >> 31));
+	}
+}
@@ -0,0 +1,48 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+
+import java.nio.ByteBuffer;
+
+public class BingoCardCodec extends PacketCodec<BingoCardCodec.Message> {
+
+	public static class Message {
+		public int[][] indices = new int[5][5];
+	}
+
+	public BingoCardCodec() {
+		super(NetworkHelper.dataType.BingoCard, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		int[][] card = TogetherManager.getCurrentUser().bingoCardIndices;
+		for (int x = 0; x < 5; x++)
+			for (int y = 0; y < 5; y++)
+				message.indices[x][y] = card[x][y];
+		return true;
+	}
+
+	public int size(Message message) {
+		return 4*25;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		for (int x = 0; x < 5; x++)
+			for (int y = 0; y < 5; y++)
+				data.putInt(message.indices[x][y]);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		for (int x = 0; x < 5; x++)
+			for (int y = 0; y < 5; y++)
+				message.indices[x][y] = data.getInt();
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		for (int x = 0; x < 5; x++)
+			for (int y = 0; y < 5; y++)
+				playerInfo.bingoCardIndices[x][y] = message.indices[x][y];
+	}
+}
@@ -0,0 +1,65 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.bingo.BingoPanelCompleteNotification;
+import chronoMods.bingo.Caller;
+import chronoMods.bingo.SendBingoPatches;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+import chronoMods.ui.deathScreen.EndScreenBingoVictory;
+import chronoMods.ui.deathScreen.NewDeathScreenPatches;
+import chronoMods.ui.hud.BingoPlayerWidget;
+import chronoMods.ui.hud.WidgetRanking;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import java.nio.ByteBuffer;
+
+public class BingoCodec extends PacketCodec<BingoCodec.Message> {
+
+	public static class Message {
+		public int rule;
+	}
+
+	public BingoCodec() {
+		super(NetworkHelper.dataType.Bingo, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		message.rule = SendBingoPatches.lastBingo;
+		return true;
+	}
+
+	public int size(Message message) {
+		return 4;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putInt(message.rule);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.rule = data.getInt();
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		for (RemotePlayer bingoUser : TogetherManager.players) {
+			boolean marked = Caller.markCard(playerInfo, message.rule);
+
+			int victory = Caller.isWin(playerInfo.bingoCard);
+			if (victory > 0) {
+				((BingoPlayerWidget)playerInfo.widget).winningLine = victory;
+	            NewDeathScreenPatches.EndScreenBase = new EndScreenBingoVictory(AbstractDungeon.getCurrRoom().monsters, playerInfo);
+	            AbstractDungeon.screen = NewDeathScreenPatches.Enum.RACEEND;
+	        }
+
+			if (marked) {
+				((BingoPlayerWidget)playerInfo.widget).flash();
+				WidgetRanking.update(playerInfo.widget);
+
+				if (bingoUser.team == playerInfo.team) {
+					Caller.notifications.add(new BingoPanelCompleteNotification(message.rule, playerInfo));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.CardDataBuffer;
+import chronoMods.network.DeckSync;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.PlayerState;
+import chronoMods.network.RemotePlayer;
+import chronoMods.network.SendDataPatches;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+
+import java.nio.ByteBuffer;
+
+public class DeckInfoCodec extends PacketCodec<DeckInfoCodec.Message> {
+
+	public static class Message {
+		public boolean update;
+		public boolean remove;
+		public CardDataBuffer card;
+	}
+
+	public DeckInfoCodec() {
+		super(NetworkHelper.dataType.DeckInfo, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		message.card = new CardDataBuffer(SendDataPatches.sendCard);
+		TogetherManager.log("DeckInfo sent: " + message.card.toString());
+
+		// Deck size and upgrade count travel in the State block
+		PlayerState.mark(PlayerState.DECK);
+
+		message.update = SendDataPatches.sendUpdate;
+		message.remove = SendDataPatches.sendRemove;
+
+		SendDataPatches.sendCard = null;
+		SendDataPatches.sendUpdate = false;
+		SendDataPatches.sendRemove = false;
+		return true;
+	}
+
+	public int size(Message message) {
+		return 8 + message.card.getBufferSize();
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putInt(message.update ? 1 : 0);
+		data.putInt(message.remove ? 1 : 0);
+		message.card.write(data);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.update = data.getInt() > 0;
+		message.remove = data.getInt() > 0;
+		message.card = CardDataBuffer.read(data);
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		CardDataBuffer bufferCard = message.card;
+		AbstractCard deckInfoOutCard = bufferCard.generateCopy();
+		TogetherManager.log("Update Deck Cards: " + message.update + ", " + message.remove + " - " + deckInfoOutCard.toString());
+
+		AbstractCard removeMeFromDeck = null;
+		// Add it to the deck
+		if (message.update) {
+			// Only the one card was upgraded, not every copy of it
+			for (AbstractCard c : playerInfo.deck.group) {
+				if (bufferCard.isCard(c) && !c.upgraded) {
+					playerInfo.deckHash -= DeckSync.cardHash(c);
+					if (playerInfo.widget != null) playerInfo.widget.cardRemoved(c);
+					c.upgrade();
+					playerInfo.deckHash += DeckSync.cardHash(c);
+					if (playerInfo.widget != null) playerInfo.widget.cardAdded(c);
+					break;
+				}
+			}
+
+		} else if (message.remove) {
+			for (AbstractCard c : playerInfo.deck.group) {
+				if (bufferCard.isCard(c) && c.timesUpgraded == deckInfoOutCard.timesUpgraded)
+					removeMeFromDeck = c;
+			}
+			if (removeMeFromDeck != null) {
+				playerInfo.deck.removeCard(removeMeFromDeck);
+				playerInfo.deckHash -= DeckSync.cardHash(removeMeFromDeck);
+				if (playerInfo.widget != null) playerInfo.widget.cardRemoved(removeMeFromDeck);
+			}
+		} else { 
+        	playerInfo.deck.addToBottom(deckInfoOutCard);
+        	playerInfo.deckHash += DeckSync.cardHash(deckInfoOutCard);
+        	if (playerInfo.widget != null) playerInfo.widget.cardAdded(deckInfoOutCard);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package chronoMods.network.codec;
+
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import java.nio.ByteBuffer;
+
+// Sent to one player whose deck we've lost track of, they answer with a DeckSnapshot for just us
+public class DeckRequestCodec extends PacketCodec<DeckRequestCodec.Message> {
+
+	public static class Message {}
+
+	public DeckRequestCodec() {
+		super(NetworkHelper.dataType.DeckRequest, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		return true;
+	}
+
+	public int size(Message message) {
+		return 0;
+	}
+
+	public void encode(Message message, ByteBuffer data) {}
+
+	public void decode(ByteBuffer data, Message message) {}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		if (AbstractDungeon.player == null) { return; }
+		NetworkHelper.sendDataTo(NetworkHelper.dataType.DeckSnapshot, playerInfo);
+	}
+}
@@ -0,0 +1,82 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.CardDataBuffer;
+import chronoMods.network.DeckSync;
+import chronoMods.network.Interest;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+import chronoMods.network.VarInt;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+// Our whole master deck, as the deck hash then a varint count and each card. Replaces the receiver's copy in one go.
+// Big decks go over MAX_PACKET_SIZE, which is fine, the Fragmenter splits them up.
+public class DeckSnapshotCodec extends PacketCodec<DeckSnapshotCodec.Message> {
+
+	// Far beyond any real deck, just a guard against a garbage count
+	public static final int MAX_CARDS = 1000;
+
+	public static class Message {
+		public long hash;
+		public ArrayList<CardDataBuffer> cards = new ArrayList();
+	}
+
+	public DeckSnapshotCodec() {
+		super(NetworkHelper.dataType.DeckSnapshot, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		if (AbstractDungeon.player == null) { return false; }
+
+		message.cards.clear();
+		for (AbstractCard card : AbstractDungeon.player.masterDeck.group)
+			message.cards.add(new CardDataBuffer(card));
+		message.hash = DeckSync.deckHash(AbstractDungeon.player.masterDeck);
+		return true;
+	}
+
+	public int size(Message message) {
+		int size = 8 + VarInt.size(message.cards.size());
+		for (CardDataBuffer card : message.cards)
+			size += card.getBufferSize();
+		return size;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putLong(message.hash);
+		VarInt.put(data, message.cards.size());
+		for (CardDataBuffer card : message.cards)
+			card.write(data);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.hash = data.getLong();
+		message.cards.clear();
+
+		int count = Math.min(VarInt.get(data), MAX_CARDS);
+		for (int i = 0; i < count && data.hasRemaining(); i++)
+			message.cards.add(CardDataBuffer.read(data));
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		playerInfo.deck.clear();
+		for (CardDataBuffer card : message.cards)
+			playerInfo.deck.group.add(card.generateCopy());
+
+		playerInfo.deckHash = DeckSync.deckHash(playerInfo.deck);
+		playerInfo.snapshotHash = message.hash;
+		if (playerInfo.deckHash != message.hash)
+			TogetherManager.log("Deck snapshot from " + playerInfo.userName + " doesn't match its hash, some cards couldn't be recreated");
+
+		if (playerInfo.widget != null) {
+			if (Interest.wants(playerInfo))
+				playerInfo.widget.updateCardDisplay();
+			else
+				playerInfo.widget.cardsStale = true;
+		}
+	}
+}
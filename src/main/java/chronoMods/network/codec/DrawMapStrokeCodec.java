@@ -0,0 +1,103 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.coop.drawable.MapCanvas;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+// One segment of a stroke as a polyline. Points are fractions of the canvas size so different resolutions line up,
+// quantized to 16 bits. They're on the canvas rather than the screen, so how far anyone has scrolled the map doesn't matter.
+// The first point is absolute and the rest are 16 bit deltas that wrap, so they're always exact.
+// Layout is [short count][float brushSize][short x][short y] then [short dx][short dy] per extra point
+public class DrawMapStrokeCodec extends PacketCodec<DrawMapStrokeCodec.Message> {
+
+	public static final float QUANTIZE = 65535f;
+
+	public static class Message {
+		public int count;
+		public int[] xs = new int[MapCanvas.MAX_STROKE_POINTS];
+		public int[] ys = new int[MapCanvas.MAX_STROKE_POINTS];
+		public float brushSize;
+	}
+
+	// Scratch space for rasterizing, so receiving doesn't allocate
+	private float[] xs = new float[MapCanvas.MAX_STROKE_POINTS];
+	private float[] ys = new float[MapCanvas.MAX_STROKE_POINTS];
+
+	public DrawMapStrokeCodec() {
+		super(NetworkHelper.dataType.DrawMapStroke, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		MapCanvas c = TogetherManager.getCurrentUser().drawable[AbstractDungeon.actNum-1];
+		if (!c.hasStrokeToSend()) { return false; }
+
+		ArrayList<Vector2> points = c.takeStroke();
+		float xSize = c.width;
+		float ySize = c.height;
+
+		message.count = points.size();
+		for (int i = 0; i < message.count; i++) {
+			message.xs[i] = quantize(points.get(i).x / xSize);
+			message.ys[i] = quantize(points.get(i).y / ySize);
+		}
+
+		message.brushSize = c.brushSize;
+		return true;
+	}
+
+	public int size(Message message) {
+		return 10 + 4 * (message.count - 1);
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putShort((short)message.count);
+		data.putFloat(message.brushSize);
+
+		data.putShort((short)message.xs[0]);
+		data.putShort((short)message.ys[0]);
+		for (int i = 1; i < message.count; i++) {
+			data.putShort((short)(message.xs[i] - message.xs[i-1]));
+			data.putShort((short)(message.ys[i] - message.ys[i-1]));
+		}
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.count = Math.min(data.getShort() & 0xFFFF, MapCanvas.MAX_STROKE_POINTS);
+		message.brushSize = data.getFloat();
+		if (message.count == 0) { return; }
+
+		message.xs[0] = data.getShort() & 0xFFFF;
+		message.ys[0] = data.getShort() & 0xFFFF;
+		for (int i = 1; i < message.count; i++) {
+			message.xs[i] = (message.xs[i-1] + data.getShort()) & 0xFFFF;
+			message.ys[i] = (message.ys[i-1] + data.getShort()) & 0xFFFF;
+		}
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		if (playerInfo.isUser(TogetherManager.currentUser)) { return; }
+
+		MapCanvas canvas = playerInfo.drawable[playerInfo.act-1];
+		float xSize = canvas.width;
+		float ySize = canvas.height;
+
+		for (int i = 0; i < message.count; i++) {
+			xs[i] = message.xs[i] / QUANTIZE * xSize;
+			ys[i] = message.ys[i] / QUANTIZE * ySize;
+		}
+
+		canvas.brushSize = message.brushSize;
+		canvas.drawStroke(xs, ys, message.count);
+	}
+
+	private static int quantize(float fraction) {
+		return Math.round(MathUtils.clamp(fraction, 0f, 1f) * QUANTIZE);
+	}
+}
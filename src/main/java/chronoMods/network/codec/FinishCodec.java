@@ -0,0 +1,49 @@
+package chronoMods.network.codec;
+
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+import chronoMods.ui.deathScreen.customMetrics;
+import chronoMods.ui.hud.VersusTimer;
+import chronoMods.ui.hud.WidgetRanking;
+
+import java.nio.ByteBuffer;
+
+public class FinishCodec extends PacketCodec<FinishCodec.Message> {
+
+	public static class Message {
+		public float time;
+	}
+
+	public FinishCodec() {
+		super(NetworkHelper.dataType.Finish, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		message.time = VersusTimer.timer;
+		return true;
+	}
+
+	public int size(Message message) {
+		return 4;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putFloat(message.time);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.time = data.getFloat();
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		playerInfo.finalTime = message.time;
+		playerInfo.splits.get("Final").finish(message.time);
+
+		WidgetRanking.update(playerInfo.widget);
+
+		// Report to server - this should replace the earlier entry
+		customMetrics metrics = new customMetrics();
+		Thread t = new Thread((Runnable)metrics);
+		t.start();
+	}
+}
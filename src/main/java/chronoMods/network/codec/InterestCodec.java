@@ -0,0 +1,61 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.Interest;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+
+import java.nio.ByteBuffer;
+
+// The account IDs of the players the sender wants full updates from, as a count then each ID.
+// Everyone else reads whether they're on the list and sends the sender either deltas or summaries to match.
+public class InterestCodec extends PacketCodec<InterestCodec.Message> {
+
+	// Far more than fits on screen, just a guard against a garbage count
+	public static final int MAX_IDS = 64;
+
+	public static class Message {
+		public int count;
+		public long[] ids = new long[MAX_IDS];
+	}
+
+	public InterestCodec() {
+		super(NetworkHelper.dataType.Interest, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		message.count = 0;
+		for (Long id : Interest.getWanted()) {
+			if (message.count == MAX_IDS) { break; }
+			message.ids[message.count++] = id;
+		}
+		return true;
+	}
+
+	public int size(Message message) {
+		return 4 + 8 * message.count;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putInt(message.count);
+		for (int i = 0; i < message.count; i++)
+			data.putLong(message.ids[i]);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.count = Math.max(0, Math.min(data.getInt(), Math.min(MAX_IDS, data.remaining() / 8)));
+		for (int i = 0; i < message.count; i++)
+			message.ids[i] = data.getLong();
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		if (playerInfo.isUser(TogetherManager.currentUser)) { return; }
+
+		boolean watching = false;
+		for (int i = 0; i < message.count; i++)
+			if (message.ids[i] == TogetherManager.currentUser.getAccountID())
+				watching = true;
+
+		Interest.watched(playerInfo, watching);
+	}
+}
@@ -0,0 +1,58 @@
+package chronoMods.network.codec;
+
+import chronoMods.network.BufferPool;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// One message type on the wire. Sending captures local game state into a message and encodes it,
+// receiving decodes into a reused message and only then applies it to the game.
+// Bodies are read and written relative to the position just past the dataType header.
+public abstract class PacketCodec<T> {
+
+	public static final int HEADER_SIZE = 4;
+
+	public final NetworkHelper.dataType type;
+
+	// Reused for every send and receive of this type, so the hot path doesn't allocate messages
+	public final T outgoing;
+	public final T incoming;
+
+	public PacketCodec(NetworkHelper.dataType type, T outgoing, T incoming) {
+		this.type = type;
+		this.outgoing = outgoing;
+		this.incoming = incoming;
+	}
+
+	// Fill the message from our own game state. Return false if there is nothing to send.
+	public abstract boolean capture(T message);
+
+	// Size of the body written by encode, excluding the header
+	public abstract int size(T message);
+
+	public abstract void encode(T message, ByteBuffer data);
+
+	public abstract void decode(ByteBuffer data, T message);
+
+	// Apply a decoded message from the given player to the game
+	public abstract void apply(T message, RemotePlayer player);
+
+	public ByteBuffer generate() {
+		if (!capture(outgoing)) { return null; }
+
+		ByteBuffer data = BufferPool.acquire(HEADER_SIZE + size(outgoing));
+		data.putInt(type.ordinal());
+		encode(outgoing, data);
+		((Buffer)data).rewind();
+
+		return data;
+	}
+
+	public void receive(ByteBuffer data, RemotePlayer player) {
+		((Buffer)data).position(HEADER_SIZE);
+		decode(data, incoming);
+		apply(incoming, player);
+	}
+}
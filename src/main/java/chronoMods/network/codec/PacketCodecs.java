@@ -0,0 +1,39 @@
+package chronoMods.network.codec;
+
+import chronoMods.network.NetworkHelper;
+
+// Flat lookup from dataType ordinal to the codec that owns it.
+// Types without a codec are still handled by the switches in NetworkHelper.
+public class PacketCodecs {
+
+	private static final PacketCodec[] codecs = new PacketCodec[NetworkHelper.dataType.values().length];
+
+	static {
+		register(new VersionCodec());
+		register(new ReadyCodec());
+		register(new PlayerStateCodec());
+		register(new FinishCodec());
+		register(new SplitsCodec());
+		register(new DrawMapStrokeCodec());
+		register(new DeckInfoCodec());
+		register(new BingoCodec());
+		register(new BingoCardCodec());
+		register(new PingCodec());
+		register(new InterestCodec());
+		register(new DeckRequestCodec());
+		register(new DeckSnapshotCodec());
+	}
+
+	public static void register(PacketCodec codec) {
+		codecs[codec.type.ordinal()] = codec;
+	}
+
+	public static PacketCodec get(int index) {
+		if (index < 0 || index >= codecs.length) { return null; }
+		return codecs[index];
+	}
+
+	public static PacketCodec get(NetworkHelper.dataType type) {
+		return codecs[type.ordinal()];
+	}
+}
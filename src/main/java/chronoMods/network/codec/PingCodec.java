@@ -0,0 +1,72 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.NetStats;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+
+import java.nio.ByteBuffer;
+
+// Round trip probe for NetStats. A ping carries the sender's clock, everyone else echoes it back to just the sender
+// and only the sender records the difference, so no clocks need to agree.
+public class PingCodec extends PacketCodec<PingCodec.Message> {
+
+	public static class Message {
+		public long pinger;
+		public long sentNanos;
+		public boolean reply;
+	}
+
+	// Set while sending an echo, so capture leaves the prepared message alone
+	private boolean replying = false;
+
+	public PingCodec() {
+		super(NetworkHelper.dataType.Ping, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		if (!replying) {
+			message.pinger = TogetherManager.currentUser.getAccountID();
+			message.sentNanos = System.nanoTime();
+			message.reply = false;
+		}
+		replying = false;
+		return true;
+	}
+
+	public int size(Message message) {
+		return 17;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putLong(message.pinger);
+		data.putLong(message.sentNanos);
+		data.put((byte)(message.reply ? 1 : 0));
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.pinger = data.getLong();
+		message.sentNanos = data.getLong();
+		message.reply = data.get() != 0;
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		if (playerInfo.isUser(TogetherManager.currentUser)) { return; }
+
+		// Echoes only go back to the one who pinged, but older versions broadcast them, so check it's ours
+		if (message.reply) {
+			if (message.pinger == TogetherManager.currentUser.getAccountID())
+				NetStats.rtt(playerInfo, System.nanoTime() - message.sentNanos);
+			return;
+		}
+
+		// Only answer a ping from the player who sent it, not one passed along for someone else
+		if (message.pinger != playerInfo.getAccountID()) { return; }
+
+		outgoing.pinger = message.pinger;
+		outgoing.sentNanos = message.sentNanos;
+		outgoing.reply = true;
+		replying = true;
+		NetworkHelper.sendDataTo(type, playerInfo);
+	}
+}
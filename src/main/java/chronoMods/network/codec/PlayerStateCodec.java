@@ -0,0 +1,150 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.DeckSync;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.PlayerState;
+import chronoMods.network.RemotePlayer;
+import chronoMods.network.VarInt;
+import chronoMods.ui.hud.WidgetRanking;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+import com.megacrit.cardcrawl.vfx.combat.DamageNumberEffect;
+import com.megacrit.cardcrawl.vfx.combat.HealNumberEffect;
+
+import java.nio.ByteBuffer;
+
+// Delta of the PlayerState block: a varint mask of the fields present, then each present field as a signed varint.
+// Applying the same delta twice leaves the player as it was after the first, so nothing here counts events.
+public class PlayerStateCodec extends PacketCodec<PlayerStateCodec.Message> {
+
+	public static class Message {
+		public int mask;
+		public int[] values = new int[PlayerState.FIELDS];
+	}
+
+	public PlayerStateCodec() {
+		super(NetworkHelper.dataType.State, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		message.mask = PlayerState.collect(message.values);
+		return message.mask != 0;
+	}
+
+	public int size(Message message) {
+		int size = VarInt.size(message.mask);
+		for (int i = 0; i < PlayerState.FIELDS; i++)
+			if (PlayerState.has(message.mask, i))
+				size += VarInt.sizeSigned(message.values[i]);
+		return size;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		VarInt.put(data, message.mask);
+		for (int i = 0; i < PlayerState.FIELDS; i++)
+			if (PlayerState.has(message.mask, i))
+				VarInt.putSigned(data, message.values[i]);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.mask = VarInt.get(data) & PlayerState.ALL;
+		for (int i = 0; i < PlayerState.FIELDS; i++)
+			if (PlayerState.has(message.mask, i))
+				message.values[i] = VarInt.getSigned(data);
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		int mask = message.mask;
+		int[] values = message.values;
+
+		if ((mask & PlayerState.HEALTH) != 0)
+			applyHealth(PlayerState.has(mask, PlayerState.HP) ? values[PlayerState.HP] : playerInfo.hp,
+				PlayerState.has(mask, PlayerState.MAX_HP) ? values[PlayerState.MAX_HP] : playerInfo.maxHp, playerInfo);
+
+		if (PlayerState.has(mask, PlayerState.GOLD))
+			applyGold(values[PlayerState.GOLD], playerInfo);
+
+		if (PlayerState.has(mask, PlayerState.ACT))
+			playerInfo.act = values[PlayerState.ACT];
+
+		if ((mask & PlayerState.POSITION) != 0)
+			applyPosition(PlayerState.has(mask, PlayerState.FLOOR) ? values[PlayerState.FLOOR] : playerInfo.floor,
+				PlayerState.has(mask, PlayerState.X) ? values[PlayerState.X] : playerInfo.x,
+				PlayerState.has(mask, PlayerState.Y) ? values[PlayerState.Y] : playerInfo.y, playerInfo);
+
+		if (PlayerState.has(mask, PlayerState.RELICS))
+			playerInfo.relics = values[PlayerState.RELICS];
+		if (PlayerState.has(mask, PlayerState.CARDS))
+			playerInfo.cards = values[PlayerState.CARDS];
+		if (PlayerState.has(mask, PlayerState.UPGRADES))
+			playerInfo.upgrades = values[PlayerState.UPGRADES];
+
+		// On every State packet, and always after the DeckInfo that last changed their deck, so our copy should match by now.
+		// One that doesn't has missed a DeckInfo, and DeckSync asks for the whole deck.
+		if ((mask & PlayerState.DECK_HASH) != 0) {
+			long lo = PlayerState.has(mask, PlayerState.DECK_HASH_LO) ? values[PlayerState.DECK_HASH_LO] : (int)playerInfo.reportedDeckHash;
+			long hi = PlayerState.has(mask, PlayerState.DECK_HASH_HI) ? values[PlayerState.DECK_HASH_HI] : (int)(playerInfo.reportedDeckHash >>> 32);
+			DeckSync.reported(playerInfo, (hi << 32) | (lo & 0xFFFFFFFFL));
+		}
+	}
+
+	private void applyHealth(int Hp, int maxHp, RemotePlayer playerInfo) {
+		if (AbstractDungeon.player != null) {
+			if (AbstractDungeon.player.hasBlight("MirrorTouch")) {
+
+				if (!playerInfo.isUser(TogetherManager.currentUser) && Hp != AbstractDungeon.player.currentHealth) {
+					if (Hp > AbstractDungeon.player.currentHealth)
+						AbstractDungeon.topLevelEffects.add(new HealNumberEffect(playerInfo.widget.x + 64f, playerInfo.widget.y, Hp - AbstractDungeon.player.currentHealth));
+					else
+						AbstractDungeon.topLevelEffects.add(new DamageNumberEffect(AbstractDungeon.player, playerInfo.widget.x + 64f, playerInfo.widget.y, AbstractDungeon.player.currentHealth - Hp));
+				}
+
+				AbstractDungeon.player.currentHealth = Hp;
+				AbstractDungeon.player.maxHealth = maxHp;
+
+            	AbstractDungeon.player.healthBarUpdatedEvent();
+
+            	for (RemotePlayer playerhp : TogetherManager.players)
+            		playerhp.hp = Hp;
+			}
+		}
+
+		playerInfo.hp = Hp;
+		playerInfo.maxHp = maxHp;
+		TogetherManager.log("Player HP: " + Hp);
+	}
+
+	private void applyGold(int Money, RemotePlayer playerInfo) {
+		if (AbstractDungeon.player != null) {
+            if (TogetherManager.gameMode == TogetherManager.mode.Coop && AbstractDungeon.player.hasBlight("DimensionalWallet")) {
+            	AbstractDungeon.player.gold = Money;
+            	for (RemotePlayer playergld : TogetherManager.players) {
+            		playergld.gold = Money;
+            	}
+            }
+        }
+
+		playerInfo.gold = Money;
+		TogetherManager.log("Gold: " + Money);
+	}
+
+	private void applyPosition(int floor, int x, int y, RemotePlayer playerInfo) {
+		// Already there, so this is a repeat and the one-off effects have happened
+		if (floor == playerInfo.floor && x == playerInfo.x && y == playerInfo.y) { return; }
+
+		playerInfo.floor = floor;
+		playerInfo.highestFloor = Math.max(floor, playerInfo.highestFloor);
+
+		playerInfo.x = x;
+
+		if (AbstractDungeon.player != null && AbstractDungeon.player.hasBlight("BlueLadder") && playerInfo.y == y)
+			AbstractDungeon.player.getBlight("BlueLadder").counter--;
+
+		playerInfo.y = y;
+
+		TogetherManager.log("Act: " + playerInfo.act + " - Floor: " + floor + " - Position: " + playerInfo.x + ", " + playerInfo.y);
+		playerInfo.markMapNode();
+
+		WidgetRanking.update(playerInfo.widget);
+	}
+}
@@ -0,0 +1,44 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+
+import java.nio.ByteBuffer;
+
+public class ReadyCodec extends PacketCodec<ReadyCodec.Message> {
+
+	public static class Message {
+		public boolean ready;
+	}
+
+	public ReadyCodec() {
+		super(NetworkHelper.dataType.Ready, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		message.ready = TogetherManager.getCurrentUser().ready;
+		TogetherManager.log("Sending ready state: " + TogetherManager.getCurrentUser().userName + ", " + message.ready);
+		return true;
+	}
+
+	public int size(Message message) {
+		return 4;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putInt(message.ready ? 1 : 0);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.ready = data.getInt() != 0;
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		playerInfo.ready = message.ready;
+		if (message.ready)
+			TogetherManager.log("Ready: " + playerInfo.userName);
+		else
+			TogetherManager.log("Unready: " + playerInfo.userName);
+	}
+}
@@ -0,0 +1,71 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+import chronoMods.ui.hud.VersusTimer;
+import chronoMods.ui.hud.WidgetRanking;
+import com.megacrit.cardcrawl.dungeons.AbstractDungeon;
+
+import java.nio.ByteBuffer;
+
+public class SplitsCodec extends PacketCodec<SplitsCodec.Message> {
+
+	public static class Message {
+		public int act;
+		public float time;
+	}
+
+	public SplitsCodec() {
+		super(NetworkHelper.dataType.Splits, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		message.act = AbstractDungeon.actNum;
+		message.time = VersusTimer.timer;
+		return true;
+	}
+
+	public int size(Message message) {
+		return 8;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putInt(message.act);
+		data.putFloat(message.time);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.act = data.getInt();
+		message.time = data.getFloat();
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		int actNum = message.act;
+		float playtime = message.time;
+
+		TogetherManager.log("Splits, Act: " + (actNum-1) + " - " + VersusTimer.returnTimeString(playtime));
+		switch (actNum) {
+			case 1:
+				playerInfo.splits.get("Act 1").activate(AbstractDungeon.bossKey);
+				break;
+			case 2:
+				playerInfo.splits.get("Act 1").finish(playtime);
+				playerInfo.splits.get("Act 2").activate(AbstractDungeon.bossKey);
+				break;
+			case 3:
+				playerInfo.splits.get("Act 2").finish(playtime);
+				playerInfo.splits.get("Act 3").activate(AbstractDungeon.bossKey);
+				break;
+			case 4:
+				playerInfo.splits.get("Act 3").finish(playtime);
+				playerInfo.splits.get("Final").activate(AbstractDungeon.bossKey);
+				break;
+			default:
+				playerInfo.splits.get("Final").finish(playtime);
+				break;
+		}
+
+		WidgetRanking.update(playerInfo.widget);
+	}
+}
@@ -0,0 +1,60 @@
+package chronoMods.network.codec;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.CardDictionary;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+
+import java.nio.ByteBuffer;
+
+public class VersionCodec extends PacketCodec<VersionCodec.Message> {
+
+	public static class Message {
+		public float version;
+		public int modHash;
+		public boolean safeMods;
+		public int cardDictionaryHash;
+	}
+
+	public VersionCodec() {
+		super(NetworkHelper.dataType.Version, new Message(), new Message());
+	}
+
+	public boolean capture(Message message) {
+		message.version = TogetherManager.VERSION;
+		message.modHash = TogetherManager.modHash;
+		message.safeMods = TogetherManager.safeMods;
+		message.cardDictionaryHash = CardDictionary.getHash();
+		return true;
+	}
+
+	public int size(Message message) {
+		return 16;
+	}
+
+	public void encode(Message message, ByteBuffer data) {
+		data.putFloat(message.version);
+		data.putInt(message.modHash);
+		data.putInt(message.safeMods ? 1 : 0);
+		data.putInt(message.cardDictionaryHash);
+	}
+
+	public void decode(ByteBuffer data, Message message) {
+		message.version = data.getFloat();
+		message.modHash = data.getInt();
+		message.safeMods = data.getInt() == 1;
+		message.cardDictionaryHash = data.getInt();
+	}
+
+	public void apply(Message message, RemotePlayer playerInfo) {
+		playerInfo.version = message.version;
+		playerInfo.modHash = message.modHash;
+		playerInfo.safeMods = message.safeMods;
+		playerInfo.cardDictionaryHash = message.cardDictionaryHash;
+		CardDictionary.invalidate();
+
+		TogetherManager.log("V: " + playerInfo.version);
+		TogetherManager.log("H: " + playerInfo.modHash);
+		TogetherManager.log("S: " + playerInfo.safeMods);
+	}
+}
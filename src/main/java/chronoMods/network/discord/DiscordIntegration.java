@@ -23,7 +23,9 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -39,6 +41,9 @@ public class DiscordIntegration implements Integration {
   //public ScheduledFuture<?> callbacksExecutor;
   public DiscordEventHandler eventHandler = new DiscordEventHandler();
   public ConcurrentLinkedQueue<Packet> incomingMessages = new ConcurrentLinkedQueue<>();
+  // Packets go back here once getPacket has read them. The SDK calls back on the game loop, so only it touches this.
+  private ArrayDeque<Packet> freePackets = new ArrayDeque<>();
+  private static final int MAX_FREE_PACKETS = 256;
   boolean needsFlush = false;
 
   public static ConcurrentLinkedQueue<Runnable> postedRunnables = new ConcurrentLinkedQueue<>();
@@ -229,6 +234,12 @@ public class DiscordIntegration implements Integration {
     return initialized;
   }
 
+  // Messages arrive through runCallbacks and the SDK is single threaded, so Discord is pumped from the game loop
+  @Override
+  public boolean isThreadSafe() {
+    return false;
+  }
+
   @Override
   public RemotePlayer makeCurrentUser() {
     // Discord users currently only exist in the context of a lobby
@@ -319,9 +330,23 @@ public class DiscordIntegration implements Integration {
       e.printStackTrace();
     }
     Packet p = incomingMessages.poll();
-    if (p == null) packet.clear();
-    else packet.set(p.player(), p.data());
-    return;
+    if (p == null) {
+      packet.clear();
+      return;
+    }
+
+    packet.set(p.player(), p.data());
+    p.clear();
+    if (freePackets.size() < MAX_FREE_PACKETS)
+      freePackets.add(p);
+  }
+
+  public void enqueue(RemotePlayer player, ByteBuffer data) {
+    Packet packet = freePackets.poll();
+    if (packet == null)
+      packet = new Packet();
+    packet.set(player, data);
+    incomingMessages.add(packet);
   }
 
   @Override
@@ -336,6 +361,21 @@ public class DiscordIntegration implements Integration {
     needsFlush = true;
   }
 
+  @Override
+  public void sendTo(RemotePlayer player, ByteBuffer data) {
+    if (player instanceof DiscordPlayer) {
+      ((DiscordPlayer) player).sendMessage(data);
+      needsFlush = true;
+    }
+  }
+
+  @Override
+  public void sendTo(Collection<RemotePlayer> players, ByteBuffer data) {
+    for (RemotePlayer p : players) {
+      sendTo(p, data);
+    }
+  }
+
   @Override
   public void messageUser(RemotePlayer player) {
     // Discord does not provide this functionality
@@ -163,9 +163,50 @@ public class DiscordLobby extends chronoMods.network.Lobby {
     }
     return result;
   }
+  // Every member's events arrive through here, and go straight to the one player they're about.
+  // Players used to listen for themselves, which had every event checked by every player.
+  public Map<Long, DiscordPlayer> members = new HashMap<>();
+  public Map<Long, DiscordPlayer> peers = new HashMap<>();
+
+  // The first player made for a member keeps the route, later duplicates are thrown away by NetworkHelper.addPlayer
+  public void route(DiscordPlayer player) {
+    members.putIfAbsent(player.user.getUserId(), player);
+  }
+
+  public void routePeer(DiscordPlayer player) {
+    if (members.get(player.user.getUserId()) == player)
+      peers.put(player.peerID, player);
+  }
+
+  public void unroute(DiscordPlayer player) {
+    members.remove(player.user.getUserId(), player);
+    peers.remove(player.peerID, player);
+  }
+
   public DiscordEventHandler callbacks = new DiscordEventHandler();
   {
     callbacks.addListener(new DiscordEventAdapter() {
+      @Override
+      public void onMessage(long peerId, byte channelId, byte[] data) {
+        DiscordPlayer player = peers.get(peerId);
+        if (player != null)
+          player.callbacks.onMessage(peerId, channelId, data);
+      }
+
+      @Override
+      public void onMemberUpdate(long lobbyId, long userId) {
+        DiscordPlayer player = members.get(userId);
+        if (player != null)
+          player.callbacks.onMemberUpdate(lobbyId, userId);
+      }
+
+      @Override
+      public void onMemberDisconnect(long lobbyId, long userId) {
+        DiscordPlayer player = members.get(userId);
+        if (player != null)
+          player.callbacks.onMemberDisconnect(lobbyId, userId);
+      }
+
       @Override
       public void onRouteUpdate(String routeData) {
         //TogetherManager.log("onRouteUpdate");
@@ -176,6 +217,11 @@ public class DiscordLobby extends chronoMods.network.Lobby {
       public void onMemberConnect(long lobbyId, long userId) {
         //TogetherManager.log("onMemberConnect");
         if (lobbyId != lobby.getId()) return;
+
+        DiscordPlayer player = members.get(userId);
+        if (player != null)
+          player.callbacks.onMemberConnect(lobbyId, userId);
+
         if (NetworkHelper.embarked) {
           // Player reconnecting. Adding them to the game will break things,
           // and there's no way to kick them from the lobby, so just ignore them.
@@ -1,8 +1,8 @@
 package chronoMods.network.discord;
 
 import chronoMods.TogetherManager;
+import chronoMods.network.BufferPool;
 import chronoMods.network.NetworkHelper;
-import chronoMods.network.Packet;
 import chronoMods.network.RemotePlayer;
 import chronoMods.ui.mainMenu.NewMenuButtons;
 import com.badlogic.gdx.graphics.Pixmap;
@@ -32,11 +32,13 @@ public class DiscordPlayer extends RemotePlayer
 
   // Opening a connection takes time, but we might be given messages to send before then.
   // Queue them up, then send them once a connection is established.
-  public ConcurrentLinkedQueue<ByteBuffer> packetsToSend = new ConcurrentLinkedQueue<>();
+  // Held as arrays, since the buffers we're given go back to the pool once sendPacket returns.
+  public ConcurrentLinkedQueue<byte[]> packetsToSend = new ConcurrentLinkedQueue<>();
   public boolean isConnected = false;
   public Timer reconnectTimer;
   public boolean timedOut = false;
   public boolean peerOpened = false;
+  // Not registered with the SDK, DiscordLobby looks the player up and calls these directly
   public DiscordEventAdapter callbacks = new DiscordEventAdapter() {
     @Override
     public void onMemberUpdate(long lobbyId, long userId) {
@@ -60,6 +62,7 @@ public class DiscordPlayer extends RemotePlayer
         if (metadata.containsKey("peerID") && metadata.containsKey("route")) {
           TogetherManager.log("Keys found");
           peerID = Long.parseLong(metadata.get("peerID"));
+          lobby.routePeer(DiscordPlayer.this);
           integration.core.networkManager().openPeer(peerID, metadata.get("route"));
 
           // main channel
@@ -95,10 +98,8 @@ public class DiscordPlayer extends RemotePlayer
         integration.core.networkManager().sendMessage(peerID, (byte)1, new byte[0]);
 
         // since we know the connection's open, send all queued messages on the main channel
-        for (ByteBuffer b = packetsToSend.poll(); b != null; b = packetsToSend.poll()) {
+        for (byte[] array = packetsToSend.poll(); array != null; array = packetsToSend.poll()) {
           //TogetherManager.log("Sending a queued message");
-          //TogetherManager.log("Queued message is: " + b.order());
-          byte[] array = toBytes(b);
           //TogetherManager.log(DatatypeConverter.printHexBinary(array));
           integration.core.networkManager().sendMessage(peerID, (byte)0, array);
         }
@@ -110,11 +111,8 @@ public class DiscordPlayer extends RemotePlayer
         //TogetherManager.log("Got main channel message");
         //TogetherManager.log("Length: " + data.length);
         //TogetherManager.log(DatatypeConverter.printHexBinary(data));
-        ByteBuffer buf = ByteBuffer.allocate(data.length);
-        buf.put(data);
-        ((Buffer)buf).rewind();
-        //TogetherManager.log("Incoming message is: " + buf.order());
-        integration.incomingMessages.add(new Packet(DiscordPlayer.this, buf));
+        // The SDK hands us a fresh array for every message, so it can be wrapped rather than copied
+        integration.enqueue(DiscordPlayer.this, ByteBuffer.wrap(data));
       }
     }
 
@@ -146,7 +144,7 @@ public class DiscordPlayer extends RemotePlayer
         TogetherManager.log("Completing disconnect");
         if (reconnectTimer != null) reconnectTimer.cancel();
         timedOut = true;
-        lobby.callbacks.removeListener(callbacks);
+        lobby.unroute(DiscordPlayer.this);
         NetworkHelper.removePlayer(DiscordPlayer.this);
         NewMenuButtons.newGameScreen.playerList.setPlayers(TogetherManager.players);
         if (TogetherManager.currentLobby.isOwner()) {
@@ -181,7 +179,7 @@ public class DiscordPlayer extends RemotePlayer
     this.userName = user.getUsername();
     updateAvatar();
 
-    lobby.callbacks.addListener(callbacks);
+    lobby.route(this);
     // parse metadata's initial values
     callbacks.onMemberUpdate(lobby.lobby.getId(), user.getUserId());
   }
@@ -237,7 +235,10 @@ public class DiscordPlayer extends RemotePlayer
       ((Buffer)bytes).rewind();
       //TogetherManager.log("loopback message buffer is: " + bytes.order());
       //TogetherManager.log(DatatypeConverter.printHexBinary(toBytes(bytes)));
-      integration.incomingMessages.add(new Packet(this, bytes));
+      ByteBuffer copy = BufferPool.acquire(bytes.remaining());
+      copy.put(bytes.duplicate());
+      ((Buffer)copy).rewind();
+      integration.enqueue(this, copy);
       return;
     }
     if (isConnected) {
@@ -247,7 +248,7 @@ public class DiscordPlayer extends RemotePlayer
       integration.core.networkManager().sendMessage(peerID, (byte)0, array);
     }
     else {
-      packetsToSend.add(bytes);
+      packetsToSend.add(toBytes(bytes));
     }
   }
 
@@ -0,0 +1,676 @@
+package chronoMods.network.lan;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.BufferPool;
+import chronoMods.network.Integration;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.Packet;
+import chronoMods.network.RemotePlayer;
+import chronoMods.ui.lobby.NewScreenUpdateRender;
+import chronoMods.ui.mainMenu.NewMenuButtons;
+import com.badlogic.gdx.graphics.Texture;
+import com.evacipated.cardcrawl.modthespire.lib.SpirePatch;
+import com.megacrit.cardcrawl.core.CardCrawlGame;
+import com.megacrit.cardcrawl.helpers.ImageMaster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+// Direct UDP transport for players on the same network, no relay in between.
+// Lobbies are found by broadcasting to DISCOVERY_PORT, which the host listens on. Everything else goes between
+// game sockets, with sequence numbers, acks and resends on top so packets arrive reliably and in order like Steam's.
+// Sockets are non-blocking and drained with selectNow, so this is pumped from the game loop.
+public class LanIntegration implements Integration {
+
+	public static final int DISCOVERY_PORT = 27561;
+
+	// Frame kinds, only RELIABLE frames are acked and ordered
+	static final byte DISCOVER = 0;
+	static final byte LOBBY_INFO = 1;
+	static final byte ACK = 2;
+	static final byte RELIABLE = 3;
+
+	// What a reliable frame carries
+	static final byte JOIN = 0;
+	static final byte WELCOME = 1;
+	static final byte MEMBER_JOINED = 2;
+	static final byte LEAVE = 3;
+	static final byte NEW_OWNER = 4;
+	static final byte DATA = 5;
+
+	// Frames a peer may have unacked before the rest wait in its backlog
+	public static int window = 256;
+	public static long resendNanos = 100000000L;
+	// A peer that hasn't acked anything for this long is gone
+	public static long timeoutNanos = 10000000000L;
+
+	public static ArrayList<LanIntegration> instances = new ArrayList();
+
+	public boolean initialized = false;
+	public Texture logo;
+	public Random random = new Random();
+	public LanPlayer self;
+	public boolean lobbyPrivate = false;
+
+	private Selector selector;
+	private DatagramChannel socket;
+	// Only open while we own a lobby
+	private DatagramChannel discovery;
+
+	private HashMap<SocketAddress, LanPlayer> peers = new HashMap();
+	private ArrayDeque<Packet> incoming = new ArrayDeque();
+
+	private ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(65536);
+	private ByteBuffer frame = ByteBuffer.allocate(65536);
+
+	@SpirePatch(clz=CardCrawlGame.class, method="update")
+	public static class LanUpdate
+	{
+		// Discovery replies and join requests need reading before there's a lobby for NetworkHelper to pump
+		public static void Prefix(CardCrawlGame __instance) {
+			for (LanIntegration lan : instances)
+				lan.poll();
+		}
+	}
+
+	public void initialize() {
+		logo = ImageMaster.loadImage("chrono/images/FriendsIcon.png");
+		try {
+			selector = Selector.open();
+			socket = DatagramChannel.open(StandardProtocolFamily.INET);
+			socket.setOption(StandardSocketOptions.SO_BROADCAST, true);
+			socket.bind(new InetSocketAddress(0));
+			socket.configureBlocking(false);
+			socket.register(selector, SelectionKey.OP_READ);
+
+			String name = CardCrawlGame.playerName == null || CardCrawlGame.playerName.isEmpty() ? "LAN Player" : CardCrawlGame.playerName;
+			self = new LanPlayer(random.nextLong(), name, null);
+
+			instances.add(this);
+			initialized = true;
+		} catch (IOException e) {
+			TogetherManager.log("Error initializing LAN: " + e);
+		}
+	}
+
+	public boolean isInitialized() {
+		return initialized;
+	}
+
+	// Pumped from the game loop with the lobby screens, which share its state
+	public boolean isThreadSafe() {
+		return false;
+	}
+
+	public RemotePlayer makeCurrentUser() {
+		if (TogetherManager.config.has("mark"))
+			self.bingoMark = TogetherManager.customMark;
+		return self;
+	}
+
+	public void updateLobbyData() {
+		// Hosts answer discovery with the lobby's metadata as it is at that moment, so there's nothing to push
+	}
+
+	public void createLobby(TogetherManager.mode gameMode) {
+		LanLobby lobby = new LanLobby(this, gameMode);
+		lobby.setPrivate(lobbyPrivate);
+
+		TogetherManager.currentLobby = lobby;
+		TogetherManager.players = lobby.players;
+		TogetherManager.currentUser = makeCurrentUser();
+		NetworkHelper.updateLobbyData();
+		NetworkHelper.addPlayer(TogetherManager.currentUser);
+		NetworkHelper.sendData(NetworkHelper.dataType.Version);
+
+		startHosting();
+	}
+
+	public void setLobbyPrivate(boolean priv) {
+		lobbyPrivate = priv;
+		if (TogetherManager.currentLobby instanceof LanLobby)
+			TogetherManager.currentLobby.setPrivate(priv);
+	}
+
+	public void getLobbies() {
+		begin(DISCOVER);
+		putString(frame, TogetherManager.gameMode.toString());
+		sendFrame(new InetSocketAddress("255.255.255.255", DISCOVERY_PORT));
+	}
+
+	public void getPacket(Packet packet) {
+		poll();
+
+		Packet next = incoming.poll();
+		if (next == null) packet.clear();
+		else packet.set(next.player(), next.data());
+	}
+
+	public void sendPacket(ByteBuffer data) {
+		sendTo(TogetherManager.players, data);
+	}
+
+	public void sendTo(RemotePlayer player, ByteBuffer data) {
+		ByteBuffer view = data.duplicate();
+		((Buffer)view).rewind();
+		sendData(player, view);
+	}
+
+	public void sendTo(Collection<RemotePlayer> players, ByteBuffer data) {
+		ByteBuffer view = data.duplicate();
+		((Buffer)view).rewind();
+
+		for (RemotePlayer player : players)
+			sendData(player, view);
+	}
+
+	private void sendData(RemotePlayer player, ByteBuffer view) {
+		if (player == self) {
+			// Our own packets skip the socket, the pool's buffer is released once it's parsed
+			ByteBuffer copy = BufferPool.acquire(view.remaining());
+			copy.put(view.duplicate());
+			((Buffer)copy).rewind();
+			incoming.add(new Packet(self, copy));
+		} else if (player instanceof LanPlayer) {
+			beginReliable(DATA);
+			frame.put(view.duplicate());
+			sendReliable((LanPlayer)player);
+		}
+	}
+
+	public void messageUser(RemotePlayer player) {}
+
+	public Texture getLogo() { return logo; }
+
+	public void dispose() {
+		instances.remove(this);
+		stopHosting();
+		try {
+			if (socket != null) socket.close();
+			if (selector != null) selector.close();
+		} catch (IOException e) {
+			TogetherManager.log("Error closing LAN sockets: " + e);
+		}
+		initialized = false;
+	}
+
+	//
+	////////////////////////////////////////////
+	// Lobby lifecycle
+
+	void join(LanLobby lobby) {
+		forgetPeers();
+		LanPlayer host = peer(lobby.ownerID, lobby.ownerName, lobby.hostAddress);
+
+		beginReliable(JOIN);
+		frame.putLong(self.id);
+		putString(frame, self.userName);
+		sendReliable(host);
+	}
+
+	void leave(LanLobby lobby) {
+		// Sent once, anyone who misses it times out instead
+		for (LanPlayer peer : peers.values()) {
+			beginReliable(LEAVE);
+			sendReliable(peer);
+		}
+		forgetPeers();
+		stopHosting();
+	}
+
+	void handOver(LanPlayer owner) {
+		for (LanPlayer peer : peers.values()) {
+			beginReliable(NEW_OWNER);
+			frame.putLong(owner.id);
+			sendReliable(peer);
+		}
+		setOwner(owner.id);
+	}
+
+	private void setOwner(long id) {
+		if (!(TogetherManager.currentLobby instanceof LanLobby)) { return; }
+		LanLobby lobby = (LanLobby)TogetherManager.currentLobby;
+
+		lobby.ownerID = id;
+		for (RemotePlayer player : lobby.players)
+			if (player.isUser(id))
+				lobby.ownerName = player.userName;
+
+		if (lobby.isOwner())
+			startHosting();
+		else
+			stopHosting();
+	}
+
+	private void startHosting() {
+		if (discovery != null) { return; }
+		try {
+			discovery = DatagramChannel.open(StandardProtocolFamily.INET);
+			discovery.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			discovery.bind(new InetSocketAddress(DISCOVERY_PORT));
+			discovery.configureBlocking(false);
+			discovery.register(selector, SelectionKey.OP_READ);
+		} catch (IOException e) {
+			TogetherManager.log("LAN discovery unavailable, the lobby can't be found by others: " + e);
+			discovery = null;
+		}
+	}
+
+	private void stopHosting() {
+		if (discovery == null) { return; }
+		try {
+			discovery.close();
+		} catch (IOException e) {
+			TogetherManager.log("Error closing LAN discovery: " + e);
+		}
+		discovery = null;
+	}
+
+	private LanPlayer peer(long id, String name, InetSocketAddress address) {
+		LanPlayer player = peers.get(address);
+		if (player == null) {
+			player = new LanPlayer(id, name, address);
+			peers.put(address, player);
+		}
+		return player;
+	}
+
+	private void forgetPeers() {
+		for (LanPlayer peer : peers.values())
+			peer.resetLink();
+		peers.clear();
+	}
+
+	private void dropPeer(LanPlayer peer) {
+		peers.remove(peer.address);
+		peer.resetLink();
+
+		if (!TogetherManager.players.contains(peer)) {
+			// The host never let us in
+			if (TogetherManager.currentLobby instanceof LanLobby && peer.isUser(TogetherManager.currentLobby.getOwner()))
+				TogetherManager.infoPopup.show(CardCrawlGame.languagePack.getUIString("Network").TEXT[5], CardCrawlGame.languagePack.getUIString("Network").TEXT[6]);
+			return;
+		}
+
+		NetworkHelper.removePlayer(peer);
+		NewMenuButtons.newGameScreen.playerList.setPlayers(TogetherManager.players);
+
+		// Without a word from the owner everyone settles on the same replacement
+		LanLobby lobby = (LanLobby)TogetherManager.currentLobby;
+		if (lobby != null && peer.isUser(lobby.ownerID)) {
+			long next = Long.MAX_VALUE;
+			for (RemotePlayer player : TogetherManager.players)
+				next = Math.min(next, player.getAccountID());
+			setOwner(next);
+		}
+	}
+
+	//
+	////////////////////////////////////////////
+	// Socket pump
+
+	public void poll() {
+		if (!initialized) { return; }
+
+		try {
+			if (selector.selectNow() > 0) {
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					DatagramChannel channel = (DatagramChannel)keys.next().channel();
+					keys.remove();
+					receiveAll(channel);
+				}
+			}
+		} catch (IOException e) {
+			TogetherManager.log("LAN receive failed: " + e);
+		}
+
+		resend();
+	}
+
+	private void receiveAll(DatagramChannel channel) throws IOException {
+		while (channel.isOpen()) {
+			((Buffer)receiveBuffer).clear();
+			SocketAddress from = channel.receive(receiveBuffer);
+			if (from == null) { return; }
+			((Buffer)receiveBuffer).flip();
+
+			try {
+				receive((InetSocketAddress)from, receiveBuffer);
+			} catch (RuntimeException e) {
+				// A malformed frame from someone else on the network shouldn't take the game down
+				TogetherManager.log("Dropped LAN frame from " + from + ": " + e);
+			}
+		}
+	}
+
+	private void receive(InetSocketAddress from, ByteBuffer data) {
+		byte kind = data.get();
+		switch (kind) {
+			case DISCOVER:
+				answerDiscovery(from, getString(data));
+				break;
+			case LOBBY_INFO:
+				discovered(from, data);
+				break;
+			case ACK:
+				LanPlayer acked = peers.get(from);
+				if (acked != null)
+					acked.unacked.remove(data.getInt());
+				break;
+			case RELIABLE:
+				receiveReliable(from, data);
+				break;
+		}
+	}
+
+	private void receiveReliable(InetSocketAddress from, ByteBuffer data) {
+		int seq = data.getInt();
+		LanPlayer peer = peers.get(from);
+
+		// Strangers may only ask to join. Anything else goes unacked, so it's resent once we've heard about them
+		if (peer == null) {
+			if (data.get(data.position()) != JOIN || !acceptingJoins()) { return; }
+			ByteBuffer join = data.duplicate();
+			join.get();
+			peer = peer(join.getLong(), getString(join), from);
+		}
+
+		begin(ACK);
+		frame.putInt(seq);
+		sendFrame(from);
+
+		int ahead = seq - peer.nextReceiveSeq;
+		if (ahead < 0) { return; }
+		if (ahead > 0) {
+			if (ahead < window && !peer.outOfOrder.containsKey(seq)) {
+				byte[] early = new byte[data.remaining()];
+				data.get(early);
+				peer.outOfOrder.put(seq, early);
+			}
+			return;
+		}
+
+		peer.nextReceiveSeq++;
+		deliver(peer, data);
+
+		byte[] waiting;
+		while (peers.containsKey(from) && (waiting = peer.outOfOrder.remove(peer.nextReceiveSeq)) != null) {
+			peer.nextReceiveSeq++;
+			deliver(peer, ByteBuffer.wrap(waiting));
+		}
+	}
+
+	private void deliver(LanPlayer peer, ByteBuffer data) {
+		byte inner = data.get();
+		switch (inner) {
+			case DATA:
+				ByteBuffer copy = BufferPool.acquire(data.remaining());
+				copy.put(data);
+				((Buffer)copy).rewind();
+				incoming.add(new Packet(peer, copy));
+				break;
+			case JOIN:
+				welcome(peer);
+				break;
+			case WELCOME:
+				welcomed(peer, data);
+				break;
+			case MEMBER_JOINED:
+				long id = data.getLong();
+				String name = getString(data);
+				InetSocketAddress address = new InetSocketAddress(getString(data), data.getInt());
+				memberJoined(peer(id, name, address));
+				break;
+			case LEAVE:
+				dropPeer(peer);
+				break;
+			case NEW_OWNER:
+				setOwner(data.getLong());
+				break;
+		}
+	}
+
+	private boolean acceptingJoins() {
+		if (!(TogetherManager.currentLobby instanceof LanLobby)) { return false; }
+		LanLobby lobby = (LanLobby)TogetherManager.currentLobby;
+		return lobby.isOwner() && lobby.joinable && !NetworkHelper.embarked && lobby.players.size() < lobby.capacity;
+	}
+
+	//
+	////////////////////////////////////////////
+	// Discovery and joining
+
+	private void answerDiscovery(InetSocketAddress from, String mode) {
+		if (!(TogetherManager.currentLobby instanceof LanLobby)) { return; }
+		LanLobby lobby = (LanLobby)TogetherManager.currentLobby;
+		if (!acceptingJoins() || lobby.privateLobby || !lobby.mode.equals(mode)) { return; }
+
+		// Replied from the game socket, so the sender learns where to join
+		begin(LOBBY_INFO);
+		frame.putLong(lobby.lobbyID);
+		frame.putLong(lobby.ownerID);
+		putString(frame, lobby.ownerName);
+		frame.putInt(lobby.capacity);
+		frame.putInt(lobby.players.size());
+		frame.putShort((short)lobby.metadata.size());
+		for (Map.Entry<String, String> entry : lobby.metadata.entrySet()) {
+			putString(frame, entry.getKey());
+			putString(frame, entry.getValue());
+		}
+		sendFrame(from);
+	}
+
+	private void discovered(InetSocketAddress from, ByteBuffer data) {
+		long lobbyID = data.getLong();
+		long ownerID = data.getLong();
+		String ownerName = getString(data);
+		int capacity = data.getInt();
+		int members = data.getInt();
+
+		HashMap<String, String> metadata = new HashMap();
+		int count = data.getShort();
+		for (int i = 0; i < count; i++)
+			metadata.put(getString(data), getString(data));
+
+		// Several replies can come back for one broadcast
+		for (chronoMods.network.Lobby lobby : NetworkHelper.lobbies)
+			if (lobby instanceof LanLobby && ((LanLobby)lobby).lobbyID == lobbyID)
+				return;
+
+		RemotePlayer user = TogetherManager.currentUser;
+		NetworkHelper.lobbies.add(new LanLobby(this, lobbyID, ownerID, ownerName, capacity, members, metadata, from));
+		// Building a lobby makes us its current user, which isn't true until we join one
+		TogetherManager.currentUser = user;
+
+		NewMenuButtons.lobbyScreen.createFreshGameList();
+	}
+
+	// Host side, a new player asked to join
+	private void welcome(LanPlayer joiner) {
+		if (!acceptingJoins()) { dropPeer(joiner); return; }
+
+		beginReliable(WELCOME);
+		frame.putShort((short)(TogetherManager.players.size() - 1));
+		for (RemotePlayer player : TogetherManager.players) {
+			if (player == self || !(player instanceof LanPlayer)) { continue; }
+			putMember((LanPlayer)player);
+		}
+		sendReliable(joiner);
+
+		for (RemotePlayer player : TogetherManager.players) {
+			if (player == self || !(player instanceof LanPlayer)) { continue; }
+			beginReliable(MEMBER_JOINED);
+			putMember(joiner);
+			sendReliable((LanPlayer)player);
+		}
+
+		memberJoined(joiner);
+
+		LanLobby lobby = (LanLobby)TogetherManager.currentLobby;
+		Map<String, String> members = new HashMap();
+		members.put("members", lobby.getMemberNameList());
+		lobby.setMetadata(members);
+
+		if (TogetherManager.gameMode == TogetherManager.mode.Bingo)
+			NetworkHelper.sendData(NetworkHelper.dataType.BingoRules);
+		NetworkHelper.sendData(NetworkHelper.dataType.Rules);
+	}
+
+	// Joiner side, the host let us in and told us who else is here
+	private void welcomed(LanPlayer host, ByteBuffer data) {
+		NetworkHelper.addPlayer(host);
+
+		int count = data.getShort();
+		for (int i = 0; i < count; i++) {
+			long id = data.getLong();
+			String name = getString(data);
+			InetSocketAddress address = new InetSocketAddress(getString(data), data.getInt());
+			NetworkHelper.addPlayer(peer(id, name, address));
+		}
+
+		NewScreenUpdateRender.joinFlag = true;
+		NetworkHelper.sendData(NetworkHelper.dataType.Version);
+		NetworkHelper.sendData(NetworkHelper.dataType.Ready);
+		NewMenuButtons.newGameScreen.playerList.setPlayers(TogetherManager.players);
+	}
+
+	private void memberJoined(LanPlayer player) {
+		NetworkHelper.addPlayer(player);
+
+		NetworkHelper.sendData(NetworkHelper.dataType.Version);
+		NetworkHelper.sendData(NetworkHelper.dataType.Ready);
+		if (TogetherManager.gameMode == TogetherManager.mode.Coop)
+			NetworkHelper.sendData(NetworkHelper.dataType.Character);
+
+		NewMenuButtons.newGameScreen.playerList.setPlayers(TogetherManager.players);
+	}
+
+	private void putMember(LanPlayer player) {
+		frame.putLong(player.id);
+		putString(frame, player.userName);
+		putString(frame, player.address.getAddress().getHostAddress());
+		frame.putInt(player.address.getPort());
+	}
+
+	//
+	////////////////////////////////////////////
+	// Reliability
+
+	private void beginReliable(byte inner) {
+		begin(RELIABLE);
+		// Sequence number, filled in once we know who it's for
+		frame.putInt(0);
+		frame.put(inner);
+	}
+
+	private void sendReliable(LanPlayer peer) {
+		byte[] bytes = new byte[frame.position()];
+		((Buffer)frame).flip();
+		frame.get(bytes);
+
+		int seq = peer.nextSendSeq++;
+		ByteBuffer.wrap(bytes).putInt(1, seq);
+
+		if (peer.unacked.size() < window)
+			transmit(peer, seq, bytes);
+		else
+			peer.backlog.add(bytes);
+	}
+
+	private void transmit(LanPlayer peer, int seq, byte[] bytes) {
+		LanPlayer.Frame pending = new LanPlayer.Frame();
+		pending.bytes = bytes;
+		pending.firstSent = pending.lastSent = System.nanoTime();
+		peer.unacked.put(seq, pending);
+		send(bytes, peer.address);
+	}
+
+	private void resend() {
+		long now = System.nanoTime();
+		ArrayList<LanPlayer> timedOut = null;
+
+		for (LanPlayer peer : peers.values()) {
+			long oldest = peer.oldestUnacked();
+			if (oldest != 0L && now - oldest > timeoutNanos) {
+				if (timedOut == null) timedOut = new ArrayList();
+				timedOut.add(peer);
+				continue;
+			}
+
+			for (LanPlayer.Frame pending : peer.unacked.values()) {
+				if (now - pending.lastSent > resendNanos) {
+					pending.lastSent = now;
+					send(pending.bytes, peer.address);
+				}
+			}
+
+			while (peer.unacked.size() < window && !peer.backlog.isEmpty()) {
+				byte[] bytes = peer.backlog.poll();
+				transmit(peer, ByteBuffer.wrap(bytes).getInt(1), bytes);
+			}
+		}
+
+		if (timedOut != null) {
+			for (LanPlayer peer : timedOut) {
+				TogetherManager.log("LAN player timed out: " + peer.userName);
+				dropPeer(peer);
+			}
+		}
+	}
+
+	//
+	////////////////////////////////////////////
+	// Frames
+
+	private void begin(byte kind) {
+		((Buffer)frame).clear();
+		frame.put(kind);
+	}
+
+	private void sendFrame(InetSocketAddress to) {
+		((Buffer)frame).flip();
+		send(frame, to);
+	}
+
+	private void send(byte[] bytes, InetSocketAddress to) {
+		send(ByteBuffer.wrap(bytes), to);
+	}
+
+	// A full send buffer drops the frame, which is no different from losing it on the wire
+	private void send(ByteBuffer bytes, InetSocketAddress to) {
+		try {
+			socket.send(bytes, to);
+		} catch (IOException e) {
+			TogetherManager.log("LAN send to " + to + " failed: " + e);
+		}
+	}
+
+	private static void putString(ByteBuffer data, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		data.putShort((short)bytes.length);
+		data.put(bytes);
+	}
+
+	private static String getString(ByteBuffer data) {
+		byte[] bytes = new byte[data.getShort() & 0xFFFF];
+		data.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
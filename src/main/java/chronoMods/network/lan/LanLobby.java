@@ -0,0 +1,133 @@
+package chronoMods.network.lan;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.Lobby;
+import chronoMods.network.RemotePlayer;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// A lobby on the local network. Either one we're hosting, or one a host described in reply to a discovery broadcast.
+public class LanLobby extends Lobby {
+
+	public LanIntegration integration;
+	public long lobbyID;
+	public long ownerID;
+	public String ownerName = "";
+	public HashMap<String, String> metadata = new HashMap();
+	public boolean joinable = true;
+	public boolean privateLobby = false;
+
+	// Where the host's game socket is, only set for discovered lobbies
+	public InetSocketAddress hostAddress;
+	public int remoteMembers = 0;
+
+	// Hosting a new lobby
+	public LanLobby(LanIntegration integration, TogetherManager.mode gameMode) {
+		super(integration);
+		this.integration = integration;
+		this.lobbyID = integration.random.nextLong();
+		this.mode = gameMode.toString();
+		this.capacity = gameMode == TogetherManager.mode.Coop ? 6 : 200;
+
+		LanPlayer self = integration.self;
+		ownerID = self.id;
+		ownerName = self.userName;
+		players.add(self);
+	}
+
+	// Discovered on the network
+	public LanLobby(LanIntegration integration, long lobbyID, long ownerID, String ownerName, int capacity, int members, Map<String, String> metadata, InetSocketAddress hostAddress) {
+		super(integration);
+		this.integration = integration;
+		this.lobbyID = lobbyID;
+		this.ownerID = ownerID;
+		this.ownerName = ownerName;
+		this.capacity = capacity;
+		this.remoteMembers = members;
+		this.metadata.putAll(metadata);
+		this.hostAddress = hostAddress;
+		fetchAllMetadata();
+	}
+
+	public String getOwnerName() {
+		return ownerName;
+	}
+
+	public long getOwner() {
+		return ownerID;
+	}
+
+	public boolean isOwner() {
+		return ownerID == integration.self.id;
+	}
+
+	public void newOwner() {
+		for (RemotePlayer player : players) {
+			if (!player.isUser(integration.self)) {
+				integration.handOver((LanPlayer)player);
+				return;
+			}
+		}
+	}
+
+	public int getMemberCount() {
+		return TogetherManager.currentLobby == this ? players.size() : remoteMembers;
+	}
+
+	public CopyOnWriteArrayList<RemotePlayer> getLobbyMembers() {
+		return players;
+	}
+
+	public String getMemberNameList() {
+		StringBuilder out = new StringBuilder();
+		for (RemotePlayer o : players)
+		{
+			out.append(o.userName);
+			out.append("\t");
+		}
+		return out.toString().trim();
+	}
+
+	public Object getID() {
+		return lobbyID;
+	}
+
+	public void leaveLobby() {
+		integration.leave(this);
+	}
+
+	public void setJoinable(boolean toggle) {
+		joinable = toggle;
+	}
+
+	public void setPrivate(boolean toggle) {
+		privateLobby = toggle;
+	}
+
+	// The host answers with the member list, the rest happens in LanIntegration once it arrives
+	public void join() {
+		players.clear();
+		players.add(integration.self);
+		TogetherManager.currentLobby = this;
+		TogetherManager.players = players;
+		TogetherManager.currentUser = integration.makeCurrentUser();
+
+		integration.join(this);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public String getMetadata(String key) {
+		String value = metadata.get(key);
+		return value == null ? "" : value;
+	}
+
+	public void setMetadata(Map<String, String> pairs) {
+		metadata.putAll(pairs);
+	}
+}
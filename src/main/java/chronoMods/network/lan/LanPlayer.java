@@ -0,0 +1,58 @@
+package chronoMods.network.lan;
+
+import chronoMods.network.RemotePlayer;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// A player reached directly over UDP. Each one also holds our half of the reliable link to them.
+public class LanPlayer extends RemotePlayer {
+
+	public long id;
+	// Null for the local user
+	public InetSocketAddress address;
+
+	static class Frame {
+		byte[] bytes;
+		long firstSent;
+		long lastSent;
+	}
+
+	// Sending side, frames wait in the backlog while the window is full
+	int nextSendSeq = 0;
+	LinkedHashMap<Integer, Frame> unacked = new LinkedHashMap();
+	ArrayDeque<byte[]> backlog = new ArrayDeque();
+
+	// Receiving side, frames that arrived early wait here until the gap is filled
+	int nextReceiveSeq = 0;
+	HashMap<Integer, byte[]> outOfOrder = new HashMap();
+
+	public LanPlayer(long id, String userName, InetSocketAddress address) {
+		this.id = id;
+		this.userName = userName;
+		this.address = address;
+	}
+
+	// Oldest frame still waiting for an ack, 0 when everything has been acked
+	long oldestUnacked() {
+		Iterator<Frame> it = unacked.values().iterator();
+		return it.hasNext() ? it.next().firstSent : 0L;
+	}
+
+	void resetLink() {
+		unacked.clear();
+		backlog.clear();
+		outOfOrder.clear();
+	}
+
+	public boolean isUser(Object player) {
+		if (player instanceof LanPlayer)
+			return ((LanPlayer)player).id == id;
+		return false;
+	}
+
+	public long getAccountID() { return id; }
+}
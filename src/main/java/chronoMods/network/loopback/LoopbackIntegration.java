@@ -0,0 +1,235 @@
+package chronoMods.network.loopback;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.BufferPool;
+import chronoMods.network.Integration;
+import chronoMods.network.Packet;
+import chronoMods.network.RemotePlayer;
+import com.badlogic.gdx.graphics.Texture;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// In-process Integration that routes packets between the local user and simulated peers in the same JVM.
+// Links can be given latency, jitter, loss and bandwidth. Like Steam's reliable channel every packet still arrives
+// and in order, so loss shows up as resend delay rather than missing data.
+// Nothing here touches GL or Steam, so it can drive NetworkHelper.parseData and sendData outside the game.
+public class LoopbackIntegration implements Integration {
+
+	// Link conditions, applied to every sender to receiver pair
+	public float latencyMillis = 0f;
+	public float jitterMillis = 0f;
+	public float loss = 0f;
+	public float resendMillis = 200f;
+	// Bytes per second each link can carry, 0 for unlimited
+	public float bandwidth = 0f;
+
+	public int peerCount = 5;
+	public Random random = new Random(0);
+
+	// Tests can step time by hand instead of using the real clock
+	public boolean manualClock = false;
+	public long clock = 0L;
+
+	public LoopbackLobby lobby;
+	private long nextID = 1;
+	private long sequence = 0;
+
+	static class Link {
+		long busyUntil;
+		long lastArrival;
+	}
+
+	static class Delivery implements Comparable<Delivery> {
+		LoopbackPlayer sender;
+		LoopbackPlayer receiver;
+		byte[] bytes;
+		long sent;
+		long arrival;
+		long sequence;
+
+		public int compareTo(Delivery other) {
+			if (arrival != other.arrival)
+				return Long.compare(arrival, other.arrival);
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	private PriorityQueue<Delivery> inFlight = new PriorityQueue();
+
+	public void initialize() {}
+
+	public boolean isInitialized() {
+		return true;
+	}
+
+	// Pumped from the game loop, so tests stay deterministic
+	public boolean isThreadSafe() {
+		return false;
+	}
+
+	public RemotePlayer makeCurrentUser() {
+		return new LoopbackPlayer(this, nextID++, "Loopback Host");
+	}
+
+	public LoopbackPlayer makePeer() {
+		long id = nextID++;
+		return new LoopbackPlayer(this, id, "Peer " + id);
+	}
+
+	public void updateLobbyData() {}
+
+	// Creates the lobby with peerCount simulated peers and makes it current, the same as entering a real lobby
+	public void createLobby(TogetherManager.mode gameMode) {
+		lobby = new LoopbackLobby(this, gameMode);
+		for (int i = 0; i < peerCount; i++)
+			lobby.players.add(makePeer());
+
+		TogetherManager.currentLobby = lobby;
+		TogetherManager.players = lobby.getLobbyMembers();
+	}
+
+	public void setLobbyPrivate(boolean priv) {
+		if (lobby != null)
+			lobby.setPrivate(priv);
+	}
+
+	// There's nothing to discover, lobbies only exist once created
+	public void getLobbies() {}
+
+	public long now() {
+		return manualClock ? clock : System.nanoTime();
+	}
+
+	public void advance(long nanos) {
+		clock += nanos;
+	}
+
+	public void getPacket(Packet packet) {
+		long now = now();
+
+		while (!inFlight.isEmpty() && inFlight.peek().arrival <= now) {
+			Delivery delivery = inFlight.poll();
+			delivery.receiver.received(delivery, now);
+
+			if (delivery.receiver.isUser(TogetherManager.currentUser)) {
+				// The sender left while this was in flight, so it's dropped like any service would
+				RemotePlayer sender = lobbyMember(delivery.sender);
+				if (sender == null) { continue; }
+
+				ByteBuffer data = BufferPool.acquire(delivery.bytes.length);
+				data.put(delivery.bytes);
+				((Buffer)data).rewind();
+
+				packet.set(sender, data);
+				return;
+			}
+
+			if (delivery.receiver.handler != null)
+				delivery.receiver.handler.accept(delivery.sender, ByteBuffer.wrap(delivery.bytes).asReadOnlyBuffer());
+		}
+
+		packet.clear();
+	}
+
+	public void sendPacket(ByteBuffer data) {
+		broadcast((LoopbackPlayer)lobbyMember(TogetherManager.currentUser), data);
+	}
+
+	public void sendTo(RemotePlayer player, ByteBuffer data) {
+		sendTo(Collections.singletonList(player), data);
+	}
+
+	public void sendTo(Collection<RemotePlayer> players, ByteBuffer data) {
+		deliver((LoopbackPlayer)lobbyMember(TogetherManager.currentUser), players, data);
+	}
+
+	void broadcast(LoopbackPlayer sender, ByteBuffer data) {
+		if (lobby == null) { return; }
+		deliver(sender, lobby.players, data);
+	}
+
+	void deliver(LoopbackPlayer sender, Collection<RemotePlayer> receivers, ByteBuffer data) {
+		if (lobby == null || sender == null) { return; }
+
+		// Copied once, receivers only ever read it
+		ByteBuffer view = data.duplicate();
+		((Buffer)view).rewind();
+		byte[] bytes = new byte[view.remaining()];
+		view.get(bytes);
+
+		long now = now();
+		for (RemotePlayer player : receivers) {
+			RemotePlayer receiver = lobbyMember(player);
+			if (receiver != null)
+				inFlight.add(schedule(sender, (LoopbackPlayer)receiver, bytes, now));
+		}
+	}
+
+	private Delivery schedule(LoopbackPlayer sender, LoopbackPlayer receiver, byte[] bytes, long now) {
+		Delivery delivery = new Delivery();
+		delivery.sender = sender;
+		delivery.receiver = receiver;
+		delivery.bytes = bytes;
+		delivery.sent = now;
+		delivery.sequence = sequence++;
+
+		// Sending to yourself never touches the wire
+		if (sender == receiver) {
+			delivery.arrival = now;
+			return delivery;
+		}
+
+		Link link = receiver.links.get(sender);
+		if (link == null) {
+			link = new Link();
+			receiver.links.put(sender, link);
+		}
+
+		long transmit = bandwidth > 0f ? (long)(bytes.length * 1000000000.0 / bandwidth) : 0L;
+		link.busyUntil = Math.max(now, link.busyUntil) + transmit;
+
+		long arrival = link.busyUntil + millis(latencyMillis);
+		if (jitterMillis > 0f)
+			arrival += millis(random.nextFloat() * jitterMillis);
+		for (int tries = 0; tries < 10 && loss > 0f && random.nextFloat() < loss; tries++)
+			arrival += millis(resendMillis);
+
+		// Reliable channels deliver in order, so a late packet holds up the ones behind it
+		arrival = Math.max(arrival, link.lastArrival);
+		link.lastArrival = arrival;
+
+		delivery.arrival = arrival;
+		return delivery;
+	}
+
+	private RemotePlayer lobbyMember(Object user) {
+		if (lobby == null) { return null; }
+		for (RemotePlayer player : lobby.players)
+			if (player.isUser(user))
+				return player;
+		return null;
+	}
+
+	private static long millis(float ms) {
+		return (long)(ms * 1000000.0);
+	}
+
+	public int packetsInFlight() {
+		return inFlight.size();
+	}
+
+	public void messageUser(RemotePlayer player) {}
+
+	public void dispose() {
+		inFlight.clear();
+		lobby = null;
+	}
+
+	// There's no logo to show, and loading one would need a GL context
+	public Texture getLogo() { return null; }
+}
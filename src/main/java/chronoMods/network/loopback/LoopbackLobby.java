@@ -0,0 +1,108 @@
+package chronoMods.network.loopback;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.Lobby;
+import chronoMods.network.RemotePlayer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Lobby held entirely in memory. The local user is always the first member and starts as owner.
+public class LoopbackLobby extends Lobby {
+
+	public LoopbackIntegration loopback;
+	public HashMap<String, String> metadata = new HashMap();
+	public RemotePlayer ownerPlayer;
+	public boolean joinable = true;
+	public boolean privateLobby = false;
+
+	private static long nextLobbyID = 1;
+	private long lobbyID = nextLobbyID++;
+
+	public LoopbackLobby(LoopbackIntegration service, TogetherManager.mode gameMode) {
+		super(service);
+		this.loopback = service;
+
+		this.mode = gameMode.toString();
+		this.capacity = gameMode == TogetherManager.mode.Coop ? 6 : 200;
+
+		players.add(TogetherManager.currentUser);
+		ownerPlayer = TogetherManager.currentUser;
+		owner = ownerPlayer.userName;
+	}
+
+	public String getOwnerName() {
+		return ownerPlayer == null ? owner : ownerPlayer.userName;
+	}
+
+	public long getOwner() {
+		return ownerPlayer == null ? 0L : ownerPlayer.getAccountID();
+	}
+
+	public boolean isOwner() {
+		return ownerPlayer != null && ownerPlayer.isUser(TogetherManager.currentUser);
+	}
+
+	public void newOwner() {
+		for (RemotePlayer player : players) {
+			if (!player.isUser(ownerPlayer)) {
+				ownerPlayer = player;
+				owner = player.userName;
+				return;
+			}
+		}
+	}
+
+	public int getMemberCount() {
+		return players.size();
+	}
+
+	public CopyOnWriteArrayList<RemotePlayer> getLobbyMembers() {
+		return players;
+	}
+
+	public String getMemberNameList() {
+		StringBuilder out = new StringBuilder();
+		for (RemotePlayer o : players)
+		{
+			out.append(o.userName);
+			out.append("\t");
+		}
+		return out.toString().trim();
+	}
+
+	public Object getID() {
+		return lobbyID;
+	}
+
+	public void leaveLobby() {
+		loopback.dispose();
+	}
+
+	public void setJoinable(boolean toggle) {
+		joinable = toggle;
+	}
+
+	public void setPrivate(boolean toggle) {
+		privateLobby = toggle;
+	}
+
+	public void join() {
+		TogetherManager.currentLobby = this;
+		TogetherManager.players = getLobbyMembers();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public String getMetadata(String key) {
+		String value = metadata.get(key);
+		return value == null ? "" : value;
+	}
+
+	public void setMetadata(Map<String, String> pairs) {
+		metadata.putAll(pairs);
+	}
+}
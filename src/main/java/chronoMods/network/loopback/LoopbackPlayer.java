@@ -0,0 +1,72 @@
+package chronoMods.network.loopback;
+
+import chronoMods.network.RemotePlayer;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.function.BiConsumer;
+
+// A player living in the same JVM. The local user reads its packets through getPacket like any other service,
+// simulated peers just count what reaches them and can optionally hand it to a handler.
+public class LoopbackPlayer extends RemotePlayer {
+
+	public LoopbackIntegration integration;
+	public long id;
+
+	// Called for every packet that reaches a simulated peer, with the sender and a read-only view of the data
+	public BiConsumer<LoopbackPlayer, ByteBuffer> handler;
+
+	// Delivery stats
+	public long packetsReceived = 0;
+	public long bytesReceived = 0;
+	public long totalLatencyNanos = 0;
+	public long maxLatencyNanos = 0;
+
+	// The link from each sender to us, so packets on it stay ordered
+	HashMap<LoopbackPlayer, LoopbackIntegration.Link> links = new HashMap();
+
+	public LoopbackPlayer(LoopbackIntegration integration, long id, String userName) {
+		this.integration = integration;
+		this.id = id;
+		this.userName = userName;
+	}
+
+	// Sends a packet from this player to everyone in the lobby, as if it had come over the network
+	public void send(ByteBuffer data) {
+		integration.broadcast(this, data);
+	}
+
+	// Sends a packet from this player to just one member of the lobby
+	public void sendTo(RemotePlayer player, ByteBuffer data) {
+		integration.deliver(this, Collections.singletonList(player), data);
+	}
+
+	public float averageLatencyMillis() {
+		if (packetsReceived == 0) { return 0f; }
+		return totalLatencyNanos / (float)packetsReceived / 1000000f;
+	}
+
+	void received(LoopbackIntegration.Delivery delivery, long now) {
+		long latency = now - delivery.sent;
+		packetsReceived++;
+		bytesReceived += delivery.bytes.length;
+		totalLatencyNanos += latency;
+		maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+	}
+
+	public void resetStats() {
+		packetsReceived = 0;
+		bytesReceived = 0;
+		totalLatencyNanos = 0;
+		maxLatencyNanos = 0;
+	}
+
+	public boolean isUser(Object player) {
+		if (player instanceof LoopbackPlayer)
+			return ((LoopbackPlayer)player).id == id;
+		return false;
+	}
+
+	public long getAccountID() { return id; }
+}
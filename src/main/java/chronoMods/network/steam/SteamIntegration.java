@@ -2,7 +2,9 @@ package chronoMods.network.steam;
 
 import basemod.ReflectionHacks;
 import chronoMods.TogetherManager;
+import chronoMods.network.BufferPool;
 import chronoMods.network.Integration;
+import chronoMods.network.NetworkHelper;
 import chronoMods.network.Packet;
 import chronoMods.network.RemotePlayer;
 import com.badlogic.gdx.graphics.Texture;
@@ -11,6 +13,7 @@ import com.megacrit.cardcrawl.core.CardCrawlGame;
 import com.megacrit.cardcrawl.helpers.ImageMaster;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 
 public class SteamIntegration implements Integration {
 
@@ -27,11 +30,9 @@ public class SteamIntegration implements Integration {
 
 	// Convenience Function
 	public static SteamPlayer getPlayer(SteamID steamID) {
-		for (RemotePlayer p : TogetherManager.players) {
-		    if (p.isUser(steamID.getAccountID()) && p instanceof SteamPlayer) {
-		    	return (SteamPlayer)p;
-		    }
-		}
+		RemotePlayer p = NetworkHelper.getPlayer(steamID.getAccountID());
+		if (p instanceof SteamPlayer)
+			return (SteamPlayer)p;
 
 		return null;
 	}
@@ -67,6 +68,11 @@ public class SteamIntegration implements Integration {
 		return (matcher != null && net != null && utils != null && friends != null);
 	}
 
+	// P2P reads and sends don't touch the callback state, so they can run on the network thread
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	// Updates the integrations lobby data
 	public void updateLobbyData() {}
 
@@ -94,10 +100,9 @@ public class SteamIntegration implements Integration {
 
 	// Run every frame. Returns null if no packet, returns the packet if there's a packet. Will run multiple times until a null result is returned.
 	public void getPacket(Packet packet) {
-		int result = SteamworksAdapter.steamNetworkingIsP2PPacketAvailable(net, channel);
-
-		if (result != 0) {
-			ByteBuffer data = ByteBuffer.allocateDirect(result);
+		int result;
+		while ((result = SteamworksAdapter.steamNetworkingIsP2PPacketAvailable(net, channel)) != 0) {
+			ByteBuffer data = BufferPool.acquire(result);
 			SteamID steamID = new SteamID();
 
 			TogetherManager.log("We have a packet of size " + result);
@@ -107,12 +112,21 @@ public class SteamIntegration implements Integration {
 			catch (SteamException e) {
 				TogetherManager.log("Reading the packet failed: " + e.getMessage());
 				e.printStackTrace();
+				BufferPool.release(data);
 				packet.clear();
 
 				return;
 			}
 
-			packet.set(getPlayer(steamID), data);
+			// Someone who isn't in the lobby, or has just left it. Drop it and read on, rather than end the pump early.
+			SteamPlayer player = getPlayer(steamID);
+			if (player == null) {
+				TogetherManager.log("Dropping a packet from " + steamID.getAccountID() + ", who isn't in the lobby");
+				BufferPool.release(data);
+				continue;
+			}
+
+			packet.set(player, data);
 			return;
 		}
 
@@ -130,6 +144,20 @@ public class SteamIntegration implements Integration {
 		}		
 	}
 
+	public void sendTo(RemotePlayer player, ByteBuffer data) {
+		if (!(player instanceof SteamPlayer)) { return; }
+		try {
+			net.sendP2PPacket(((SteamPlayer)player).steamUser, data, SteamNetworking.P2PSend.Reliable, channel);
+		} catch (SteamException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public void sendTo(Collection<RemotePlayer> players, ByteBuffer data) {
+		for (RemotePlayer player : players)
+			sendTo(player, data);
+	}
+
 	public void messageUser(RemotePlayer player) {
 		friends.activateGameOverlayToUser(SteamFriends.OverlayToUserDialog.Chat, ((SteamPlayer)player).steamUser);
 	}
@@ -2,6 +2,7 @@ package chronoMods.ui.deathScreen;
 
 import chronoMods.TogetherManager;
 import chronoMods.coop.CoopCutscene;
+import chronoMods.network.NetStats;
 import chronoMods.ui.hud.RemotePlayerWidget;
 import chronoMods.ui.hud.TopPanelPlayerPanels;
 import chronoMods.ui.hud.VersusTimer;
@@ -93,6 +94,9 @@ public class EndScreenBase implements ScrollBarListener {
 		AbstractDungeon.deathScreen = null;
 		AbstractDungeon.victoryScreen = null;
 
+		// The run is over, so this is the point to keep what the network did
+		NetStats.dump();
+
 		// Cleanup
 		playtime = (long) VersusTimer.timer;
 
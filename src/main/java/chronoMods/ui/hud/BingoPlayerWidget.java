@@ -68,19 +68,14 @@ public class BingoPlayerWidget extends RemotePlayerWidget
 			teamName = teamPlayers.get(0).teamName;
 	}
 
-	// For sorting, returns negative, 0, or positive for lower than, equal to, or higher than respectively
+	// Me or my team always on top, otherwise by the number of marks on the card
 	@Override
-	public int compareTo(Object compareToMe) {
-		// These should be sorted in ascending order, first by finished time if available, then by floor
-		RemotePlayerWidget c = (RemotePlayerWidget)compareToMe;
-
-		// Well, except me or my team should always be on top.
+	public long score() {
 		for (RemotePlayer user : teamPlayers)
 			if (user.isUser(TogetherManager.currentUser))
-				return 1;
+				return Long.MAX_VALUE;
 
-		// Otherwise, compare the number of marks on the cards.
-		return Caller.countMarks(player.bingoCard) - Caller.countMarks(c.player.bingoCard);
+		return Caller.countMarks(player.bingoCard);
 	}
 
 	@Override
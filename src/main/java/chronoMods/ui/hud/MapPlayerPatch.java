@@ -3,9 +3,7 @@ package chronoMods.ui.hud;
 import basemod.ReflectionHacks;
 import chronoMods.TogetherManager;
 import chronoMods.network.RemotePlayer;
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.evacipated.cardcrawl.modthespire.lib.SpirePatch;
 import com.megacrit.cardcrawl.core.Settings;
@@ -32,79 +30,55 @@ public class MapPlayerPatch {
             
             // This is the node's scale
             float scale = ___scale + 0.2F;
-            int size = (int)(192f * scale);
 
-            // These are the bottom left coords of the scaled box
-            int sX = (int)(xpos+96F-(size/2));
-            int sY = (int)(ypos+96F-(size/2));
-
-            // This is the interval for each player visited
-
-            // Calculate how many players have been to this node
-            int playersVisited = 0;
-            for (RemotePlayer player : TogetherManager.players) {
-                
-                if (player.hasNode(AbstractDungeon.actNum, node))
-                    playersVisited++;
-            }
+            // Everyone who has been to this node
+            ArrayList<RemotePlayer> visitors = MapVisitors.at(AbstractDungeon.actNum, node.x, node.y);
+            int playersVisited = visitors.size();
 
             // If no one is here, might as well leave
             if (playersVisited == 0) { return; }
 
-            // Set the Scissor
-            sb.flush();
-            Gdx.gl.glEnable(GL20.GL_SCISSOR_TEST);
-
-            // Draw the masked node circles
-            int playerYOffsetInterval = (int)(size/playersVisited);
+            // One band of the ring per player, top to bottom. Each band is drawn from its own rows of the ring texture,
+            // scaled about the ring's centre, so they all stay in the one batch. One player gets the whole ring, turned as usual.
             int i = 0;
-            for (RemotePlayer player : TogetherManager.players) {
-                
-                if (player.hasNode(AbstractDungeon.actNum, node)) {
-
-                    Gdx.gl.glScissor(sX, sY+(playerYOffsetInterval*(playersVisited-1-i)), size, playerYOffsetInterval);
-
-                    sb.setColor(player.colour);
-
-                    // Draw the ring
-                    sb.draw(ImageMaster.MAP_CIRCLE_5, 
-                        xpos, ypos,
-                        96.0F, 96.0F, 192.0F, 192.0F, 
-                        scale * Settings.scale, scale * Settings.scale, 
-                        ___angle, 
-                        0, 0, 192, 192, false, false);
-                                
-                    i++;
-                    sb.flush();
-               }
+            for (RemotePlayer player : visitors) {
+                int top = 192 * i / playersVisited;
+                int bottom = 192 * (i + 1) / playersVisited;
+
+                sb.setColor(player.colour);
+
+                // Draw the ring
+                sb.draw(ImageMaster.MAP_CIRCLE_5, 
+                    xpos, ypos + (192 - bottom),
+                    96.0F, 96.0F - (192 - bottom), 192.0F, bottom - top, 
+                    scale * Settings.scale, scale * Settings.scale, 
+                    playersVisited == 1 ? ___angle : 0.0F, 
+                    0, top, 192, bottom - top, false, false);
+                            
+                i++;
             }
 
-            Gdx.gl.glDisable(GL20.GL_SCISSOR_TEST);
-
-            // To avoid scissor clipping the name we draw it separately
+            // Names go over all the rings
             i = 0;
-            for (RemotePlayer player : TogetherManager.players) {
-                
-                if (player.hasNode(AbstractDungeon.actNum, node)) {
+            for (RemotePlayer player : visitors) {
                                 
-                    // Draw the player name
-                    if (player.x == node.x && player.y == node.y && player.act == AbstractDungeon.actNum) {
-                        // Special Case for starting the floor
-                        if (node.x == 0 && node.y == 0) {
-                            FontHelper.renderSmartText(sb, FontHelper.topPanelInfoFont, player.userName, 
-                                                    node.hb.width + 32.0f*Settings.scale, 
-                                                    node.hb.y - (26.0F*i*Settings.scale) + node.hb.height/2, 
-                                                    Settings.CREAM_COLOR);
-
-                        } else {
-                            FontHelper.renderFontCentered(sb, FontHelper.topPanelInfoFont, player.userName, 
-                                                    xpos + 96.0f*Settings.scale, 
-                                                    ypos - (26.0F*(i-1)*Settings.scale), 
-                                                    Settings.CREAM_COLOR);
-                        }
-                        i++;
+                // Draw the player name
+                if (player.x == node.x && player.y == node.y && player.act == AbstractDungeon.actNum) {
+                    // Special Case for starting the floor
+                    if (node.x == 0 && node.y == 0) {
+                        FontHelper.renderSmartText(sb, FontHelper.topPanelInfoFont, player.userName, 
+                                                node.hb.width + 32.0f*Settings.scale, 
+                                                node.hb.y - (26.0F*i*Settings.scale) + node.hb.height/2, 
+                                                Settings.CREAM_COLOR);
+
+                    } else {
+                        FontHelper.renderFontCentered(sb, FontHelper.topPanelInfoFont, player.userName, 
+                                                xpos + 96.0f*Settings.scale, 
+                                                ypos - (26.0F*(i-1)*Settings.scale), 
+                                                Settings.CREAM_COLOR);
                     }
-               }
+                    i++;
+                }
             }
             sb.setColor(Color.WHITE);
         }
@@ -116,14 +90,13 @@ public class MapPlayerPatch {
             if (TogetherManager.gameMode == TogetherManager.mode.Bingo) { return; }
             if (AbstractDungeon.map == null || AbstractDungeon.map.size() <= 0) { return; }
 
+            // Everyone at the start of the edge who also made it to the end
+            int dst = RemotePlayer.nodeIndex(edge.dstX, edge.dstY);
+
             int i = 0;
-            for (RemotePlayer player : TogetherManager.players) {
+            for (RemotePlayer player : MapVisitors.at(AbstractDungeon.actNum, edge.srcX, edge.srcY)) {
                 try {
-                    MapRoomNode src = AbstractDungeon.map.get(edge.srcY).get(edge.srcX);
-                    MapRoomNode dst = AbstractDungeon.map.get(edge.dstY).get(edge.dstX);
-
-                    if (player.hasNode(AbstractDungeon.actNum, src) &&
-                        player.hasNode(AbstractDungeon.actNum, dst)) {
+                    if (player.hasNode(AbstractDungeon.actNum, dst)) {
 
                     // if (player.edgesTaken[AbstractDungeon.actNum].contains(edge)) {
                         sb.setColor(player.colour);
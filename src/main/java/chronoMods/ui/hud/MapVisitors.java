@@ -0,0 +1,73 @@
+package chronoMods.ui.hud;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.RemotePlayer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Who has been to each map node, in player order, so the map overlay reads one list per node instead of asking every player.
+// A node's list is only rebuilt when someone is marked there, or every list when the lobby's players change.
+public class MapVisitors {
+
+    public static final ArrayList<RemotePlayer> NONE = new ArrayList();
+
+    private static ArrayList<RemotePlayer>[][] visitors = new ArrayList[5][];
+    private static List<RemotePlayer> players = null;
+    private static int size = -1;
+
+    public static ArrayList<RemotePlayer> at(int act, int x, int y) {
+        check();
+
+        int index = RemotePlayer.nodeIndex(x, y);
+        if (index < 0 || act < 0 || act >= visitors.length || visitors[act] == null || index >= visitors[act].length) { return NONE; }
+
+        ArrayList<RemotePlayer> list = visitors[act][index];
+        return list == null ? NONE : list;
+    }
+
+    // Someone was just marked on this node
+    public static void marked(int act, int index) {
+        check();
+        rebuild(act, index);
+    }
+
+    private static void rebuild(int act, int index) {
+        if (index < 0 || act < 0 || act >= visitors.length) { return; }
+
+        if (visitors[act] == null || index >= visitors[act].length) {
+            ArrayList<RemotePlayer>[] grown = new ArrayList[Math.max(index + 1, 16 * RemotePlayer.MAP_STRIDE)];
+            if (visitors[act] != null)
+                System.arraycopy(visitors[act], 0, grown, 0, visitors[act].length);
+            visitors[act] = grown;
+        }
+
+        ArrayList<RemotePlayer> list = new ArrayList();
+        for (RemotePlayer player : TogetherManager.players)
+            if (player.hasNode(act, index))
+                list.add(player);
+
+        visitors[act][index] = list.isEmpty() ? null : list;
+    }
+
+    // Lobbies swap TogetherManager.players out wholesale, so start over whenever it isn't the list we built from
+    private static void check() {
+        List<RemotePlayer> current = TogetherManager.players;
+        if (players == current && size == current.size()) { return; }
+
+        players = current;
+        size = current.size();
+
+        for (int act = 0; act < visitors.length; act++) {
+            visitors[act] = null;
+
+            BitSet visited = new BitSet();
+            for (RemotePlayer player : current)
+                visited.or(player.nodesTaken[act]);
+
+            for (int index = visited.nextSetBit(0); index >= 0; index = visited.nextSetBit(index + 1))
+                rebuild(act, index);
+        }
+    }
+}
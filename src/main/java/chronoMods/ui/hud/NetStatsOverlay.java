@@ -0,0 +1,107 @@
+package chronoMods.ui.hud;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.Histogram;
+import chronoMods.network.NetStats;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.RemotePlayer;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.megacrit.cardcrawl.core.Settings;
+import com.megacrit.cardcrawl.helpers.FontHelper;
+import com.megacrit.cardcrawl.helpers.ImageMaster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Table of NetStats drawn beside the player panels, toggled with F8. Opening it starts recording.
+public class NetStatsOverlay {
+
+    public static boolean visible = false;
+    public static int rows = 12;
+
+    private static final float REFRESH = 0.5F;
+    private static float refreshTimer = 0F;
+    private static ArrayList<String> lines = new ArrayList();
+    private static Color background = new Color(0F, 0F, 0F, 0.65F);
+
+    public static void update() {
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F8)) {
+            visible = !visible;
+            NetStats.enabled |= visible;
+            refreshTimer = 0F;
+        }
+
+        if (!visible) { return; }
+
+        // Formatting every frame would be most of the overlay's cost
+        refreshTimer -= Gdx.graphics.getDeltaTime();
+        if (refreshTimer <= 0F) {
+            refreshTimer = REFRESH;
+            rebuild();
+        }
+    }
+
+    private static void rebuild() {
+        lines.clear();
+
+        // Heaviest types first
+        NetworkHelper.dataType[] types = NetworkHelper.dataType.values();
+        Integer[] order = new Integer[types.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(NetStats.types[b].totalBytes(), NetStats.types[a].totalBytes()));
+
+        lines.add("Type  sent/bytes  recv/bytes  enc p50/p99  dec p50/p99 (us)");
+        for (int i = 0; i < Math.min(rows, order.length); i++) {
+            NetStats.TypeStats s = NetStats.types[order[i]];
+            if (s.totalBytes() == 0) { break; }
+            lines.add(types[order[i]] + "  " + s.sent + "/" + bytes(s.sentBytes) + "  " + s.received + "/" + bytes(s.receivedBytes)
+                + "  " + micros(s.encodeNanos.percentile(0.5)) + "/" + micros(s.encodeNanos.percentile(0.99))
+                + "  " + micros(s.decodeNanos.percentile(0.5)) + "/" + micros(s.decodeNanos.percentile(0.99)));
+        }
+
+        lines.add("Datagrams  out " + NetStats.datagramsSent + "/" + bytes(NetStats.datagramBytesSent)
+            + "  in " + NetStats.datagramsReceived + "/" + bytes(NetStats.datagramBytesReceived));
+        lines.add("Queue p99  in " + NetStats.incomingDepth.percentile(0.99) + "  out " + NetStats.outgoingDepth.percentile(0.99));
+
+        for (RemotePlayer player : TogetherManager.players) {
+            Histogram rtt = NetStats.rttNanos.get(player.getAccountID());
+            if (rtt == null) { continue; }
+            lines.add(player.userName + "  rtt " + millis(rtt.percentile(0.5)) + " / " + millis(rtt.percentile(0.99)) + " ms");
+        }
+    }
+
+    public static void render(SpriteBatch sb) {
+        if (!visible) { return; }
+
+        float x = 320.0F * Settings.scale;
+        float y = Settings.HEIGHT - 320.0F * Settings.scale;
+        float lineHeight = 22.0F * Settings.scale;
+
+        sb.setColor(background);
+        sb.draw(ImageMaster.WHITE_SQUARE_IMG, x - 10.0F * Settings.scale, y - lineHeight * lines.size() - 10.0F * Settings.scale, 620.0F * Settings.scale, lineHeight * lines.size() + 20.0F * Settings.scale);
+        sb.setColor(Color.WHITE);
+
+        for (String line : lines) {
+            FontHelper.renderFontLeftTopAligned(sb, FontHelper.tipBodyFont, line, x, y, Settings.CREAM_COLOR);
+            y -= lineHeight;
+        }
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 10240L) { return bytes + "B"; }
+        if (bytes < 10485760L) { return (bytes / 1024L) + "K"; }
+        return (bytes / 1048576L) + "M";
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1000L);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1000000.0);
+    }
+}
@@ -256,6 +256,12 @@ public class PlayerDeckViewScreen extends MasterDeckViewScreen {
     } 
   }
   
+  // The player whose deck is open, if any
+  public RemotePlayer viewing() {
+    if (AbstractDungeon.screen != PlayerDeckViewScreen.Enum.PLAYERDECK) { return null; }
+    return this.p;
+  }
+
   public void open(RemotePlayer p) {
   	this.p = p;
 
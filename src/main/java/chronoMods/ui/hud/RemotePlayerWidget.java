@@ -32,6 +32,9 @@ public class RemotePlayerWidget implements Comparable
 
 	// Ranking
 	public int rank = 0;
+	// The score WidgetRanking last placed us by
+	public long rankScore = 0L;
+	public static final long FINISHED = 1L << 40;
 
 	// Position
 	public float x = -8.0F;
@@ -51,6 +54,7 @@ public class RemotePlayerWidget implements Comparable
 
 	public float duration;
 	public float standardDuration = 1.5f;
+	private long lerpFrame = -1L;
 
 	public static final float ICON_W = 36f * Settings.scale;
 
@@ -65,6 +69,9 @@ public class RemotePlayerWidget implements Comparable
 	public float hoverScale = 1.0f;
 
 	public ArrayList<TinyCard> cards = new ArrayList<>();
+	public TinyDeck tinyDeck = new TinyDeck();
+	// The deck changed while nobody was looking, so cards needs rebuilding before it's shown. Also true until the first build.
+	public boolean cardsStale = true;
 
 	public static final float SHADOW_DIST_Y = 14.0F * Settings.scale;
 	public static final float SHADOW_DIST_X = 9.0F * Settings.scale;
@@ -107,31 +114,17 @@ public class RemotePlayerWidget implements Comparable
 		setPos(-8.0F * Settings.scale, Settings.HEIGHT - 320.0F * Settings.scale - 80.0F * rank * Settings.scale);
 	}
 
+	// Where this widget ranks, higher is better. Finishing beats any floor, and a faster finish beats a slower one.
+	public long score() {
+		if (player.finalTime > 0.0F)
+			return FINISHED - (long)(player.finalTime * 1000.0F);
+		return player.floor;
+	}
+
 	// Comparators for sorting, returns negative, 0, or positive for lower than, equal to, or higher than respectively
 	@Override
 	public int compareTo(Object compareToMe) {
-			// These should be sorted in ascending order, first by finished time if available, then by floor
-		RemotePlayerWidget c = (RemotePlayerWidget)compareToMe;
-
-		// We've both completed the run
-		if (player.finalTime > 0.0F && c.player.finalTime > 0.0F) {
-			TogetherManager.log("Compared by final time");
-			return (int)(c.player.finalTime - player.finalTime);
-		}
-		// We're not done but he is
-		else if (player.finalTime == 0.0F && c.player.finalTime > 0.0F) {
-			TogetherManager.log("We're not done");
-			return -1;
-		}
-		// He's done but we're not
-		else if (c.player.finalTime == 0.0F && player.finalTime > 0.0F) {
-			TogetherManager.log("They're not done");
-			return 1;
-		}
-
-		// Neither of us are done
-		TogetherManager.log("Floor comparison! " + player.floor + " - " + c.player.floor);
-		return player.floor - c.player.floor;
+		return Long.compare(score(), ((RemotePlayerWidget)compareToMe).score());
 	}
 
 	@Override
@@ -139,25 +132,27 @@ public class RemotePlayerWidget implements Comparable
 			return "Remote Player: " + player.userName + " @ Rank " + rank;
 	}
 
-	// Creates the Tiny Card array from the deck.
+	// Creates the Tiny Card array from the whole deck.
 	public void updateCardDisplay() {
+		cardsStale = false;
+		tinyDeck.rebuild(player.deck);
+		layoutCards();
+	}
 
-		// Make an exclusion set
-		ArrayList<String> names = new ArrayList();
+	// DeckInfo deltas, which only touch the one line of the panel. A stale panel gets rebuilt whole anyway.
+	public void cardAdded(AbstractCard card) {
+		if (!cardsStale)
+			tinyDeck.add(card);
+	}
 
-		// Sort the Deck
-		player.deck.sortAlphabetically(true);
-		player.deck.sortByRarityPlusStatusCardType(false);
-		player.deck = player.deck.getGroupedByColor();
+	public void cardRemoved(AbstractCard card) {
+		if (!cardsStale)
+			tinyDeck.remove(card);
+	}
 
-		// Add the TinyCards to the display list
-		this.cards.clear();
-		for (AbstractCard card : player.deck.group) {
-			if (!names.contains(card.name)) {
-				this.cards.add(new TinyCard(card, (int)player.deck.group.stream().filter(c -> c.name == card.name && c.timesUpgraded == card.timesUpgraded).count())); 
-				names.add(card.name);
-			}
-		}
+	// Positions the Tiny Cards next to the widget
+	public void layoutCards() {
+		this.cards = tinyDeck.cards();
 
 		// Layout Code
 		float height = (this.cards.size() - 1) * screenPosY(48.0F);
@@ -190,10 +185,8 @@ public class RemotePlayerWidget implements Comparable
 			float cardY = originY - row * rowHeight;
 			card.hb.move(originX + column * columnWidth + card.hb.width / 2.0F, cardY);
 
-			if (card.col == -1) {
-				card.col = column;
-				card.row = row;
-			} 
+			card.col = column;
+			card.row = row;
 
 			row++;
 		}
@@ -314,10 +307,12 @@ public class RemotePlayerWidget implements Comparable
         }
 	}
 
-	// Render the widgets here
-	public void render(SpriteBatch sb) { 
+	// These babies don't update, so we'll do the lerping here. Only once a frame, however many screens render us,
+	// and whether or not we end up drawn, so widgets off the bottom still slide to their new rank on time.
+	public void lerp() {
+		if (lerpFrame == Gdx.graphics.getFrameId()) { return; }
+		lerpFrame = Gdx.graphics.getFrameId();
 
-	// These babies don't update, so we'll do the lerping here.
 		if (this.duration > 0.0F) {
 			this.x = Interpolation.exp10Out.apply(this.dx, this.sx, this.duration);
 			this.y = Interpolation.exp10Out.apply(this.dy, this.sy, this.duration);
@@ -326,10 +321,21 @@ public class RemotePlayerWidget implements Comparable
 
 			// When animation is complete
 			if (this.duration <= 0)
-				updateCardDisplay();
+				layoutCards();
 		} else {
 			this.duration = 0.0f;
 		}
+	}
+
+	// Widgets fade out entirely below this height, see render
+	public boolean isOnScreen() {
+		float yn = this.y + this.yoffset;
+		return yn > 190F * Settings.yScale && yn < Settings.HEIGHT;
+	}
+
+	// Render the widgets here
+	public void render(SpriteBatch sb) { 
+		lerp();
 
 		float xn = this.x + this.xoffset;
 		float yn = this.y + this.yoffset;
@@ -433,6 +439,11 @@ public class RemotePlayerWidget implements Comparable
 
 	public void renderHoverPanel(SpriteBatch sb) {
 		if (connectbox.hovered) {
+			if (cardsStale)
+				updateCardDisplay();
+			else if (tinyDeck.isDirty())
+				layoutCards();
+
 			float height = (this.cards.size() - 1) * screenPosY(48.0F);
 			float originY = y + (height / 2.0f);
 
@@ -28,7 +28,7 @@ public class Split {
 	public static float subfontOffset = 24.0F;
 	public static float subfontScale = 0.5F;
 
-    public String[] msg = CardCrawlGame.languagePack.getUIString("Splits").TEXT;
+    public String[] msg = CardCrawlGame.languagePack == null ? new String[0] : CardCrawlGame.languagePack.getUIString("Splits").TEXT;
 
 	public Split(String key, int act) {
 		this.key = key;
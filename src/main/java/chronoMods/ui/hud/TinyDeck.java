@@ -0,0 +1,118 @@
+package chronoMods.ui.hud;
+
+import chronoMods.coop.hubris.DuctTapeCard;
+import chronoMods.coop.infusions.Infusion;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.cards.CardGroup;
+import com.megacrit.cardcrawl.screens.runHistory.TinyCard;
+
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+// The distinct cards in a remote deck and how many of each, held in display order as DeckInfo adds, removes and upgrades them.
+// A change is one tree lookup, the TinyCard list is only walked again when the panel is next laid out.
+public class TinyDeck {
+
+	// What makes two cards the same line on the panel. Colour, rarity, type and name come first so the tree iterates in display order.
+	public static class Key implements Comparable<Key> {
+		public final int colour;
+		public final int rarity;
+		public final int type;
+		public final String name;
+		public final String id;
+		public final int upgrades;
+		public final String infusion;
+		public final int infusionIndex;
+
+		public Key(AbstractCard card) {
+			colour = card.color.ordinal();
+			rarity = card.rarity.ordinal();
+			type = card.type.ordinal();
+			name = card.name;
+			id = card.cardID.equals("MergeCard") ? ((DuctTapeCard)card).generateTransferID() : card.cardID;
+			upgrades = card.timesUpgraded;
+
+			Infusion i = Infusion.infusionField.infusion.get(card);
+			infusion = i == null ? "" : i.setID;
+			infusionIndex = i == null ? 0 : i.indexID;
+		}
+
+		// Grouped by colour, rarest first, then type and name
+		public int compareTo(Key o) {
+			if (colour != o.colour) return Integer.compare(colour, o.colour);
+			if (rarity != o.rarity) return Integer.compare(o.rarity, rarity);
+			if (type != o.type) return Integer.compare(type, o.type);
+
+			int c = name.compareTo(o.name);
+			if (c != 0) return c;
+			c = id.compareTo(o.id);
+			if (c != 0) return c;
+			if (upgrades != o.upgrades) return Integer.compare(upgrades, o.upgrades);
+			c = infusion.compareTo(o.infusion);
+			if (c != 0) return c;
+			return Integer.compare(infusionIndex, o.infusionIndex);
+		}
+	}
+
+	private static class Entry {
+		public AbstractCard card;
+		public int count = 0;
+		public TinyCard tiny;
+	}
+
+	private TreeMap<Key, Entry> entries = new TreeMap();
+	private ArrayList<TinyCard> cards = new ArrayList();
+	private boolean dirty = false;
+
+	public void add(AbstractCard card) {
+		Key key = new Key(card);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			// A copy, since the deck's own card may be upgraded in place later
+			entry = new Entry();
+			entry.card = card.makeStatEquivalentCopy();
+			entries.put(key, entry);
+		}
+		entry.count++;
+		entry.tiny = null;
+		dirty = true;
+	}
+
+	// Has to be called before the card changes, so the key still matches the one it was added under
+	public void remove(AbstractCard card) {
+		Key key = new Key(card);
+		Entry entry = entries.get(key);
+		if (entry == null) { return; }
+
+		if (--entry.count <= 0)
+			entries.remove(key);
+		else
+			entry.tiny = null;
+		dirty = true;
+	}
+
+	public void rebuild(CardGroup deck) {
+		entries.clear();
+		for (AbstractCard card : deck.group)
+			add(card);
+		dirty = true;
+	}
+
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	// The TinyCards in display order. Only lines whose count changed get a new TinyCard.
+	public ArrayList<TinyCard> cards() {
+		if (dirty) {
+			cards.clear();
+			for (Entry entry : entries.values()) {
+				if (entry.tiny == null)
+					entry.tiny = new TinyCard(entry.card, entry.count);
+				cards.add(entry.tiny);
+			}
+			dirty = false;
+		}
+		return cards;
+	}
+}
@@ -16,7 +16,6 @@ import com.megacrit.cardcrawl.screens.GameOverScreen;
 import com.megacrit.cardcrawl.screens.select.GridCardSelectScreen;
 import com.megacrit.cardcrawl.shop.ShopScreen;
 
-import java.util.Collections;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public class TopPanelPlayerPanels {
@@ -25,27 +24,23 @@ public class TopPanelPlayerPanels {
 
     public TopPanelPlayerPanels() {}
 
-    // This function resorts the widgets, changing their on-screen positions.
+    // This function ranks all the widgets from scratch, changing their on-screen positions.
+    // Once the run is going, score changes go through WidgetRanking.update for just the one widget.
     public static void SortWidgets() {
         TogetherManager.log("Sorting Widgets...");
-
-        // Sorting Widgets
-        Collections.sort(TopPanelPlayerPanels.playerWidgets);
-
-        // Setting the new ranks, but sort descending
-        int i = TopPanelPlayerPanels.playerWidgets.size()-1;
-        for (RemotePlayerWidget widget : TopPanelPlayerPanels.playerWidgets) {
-            widget.setRank(i);
-            i--;
-        }
+        WidgetRanking.rebuild(TopPanelPlayerPanels.playerWidgets);
     }
 
     @SpirePatch(clz = AbstractDungeon.class, method="update")
     public static class updatePlayerPanels {
         public static void Postfix(AbstractDungeon __instance) {
             for (RemotePlayerWidget widget : TopPanelPlayerPanels.playerWidgets) {
-                widget.update();
+                if (widget.isOnScreen())
+                    widget.update();
+                else
+                    widget.connectbox.hovered = false;
             }
+            NetStatsOverlay.update();
         }
     }
 
@@ -99,11 +94,26 @@ public class TopPanelPlayerPanels {
     }
 
 
+    // Only the widgets with something to show get drawn, everyone faded out below them is summed up in one line
     public static void renderWidgets(SpriteBatch sb) {
-        for (RemotePlayerWidget widget : TopPanelPlayerPanels.playerWidgets)
-            widget.render(sb);
+        int hidden = 0;
+        float lowest = Settings.HEIGHT;
+        for (RemotePlayerWidget widget : TopPanelPlayerPanels.playerWidgets) {
+            widget.lerp();
+            if (widget.isOnScreen()) {
+                widget.render(sb);
+                lowest = Math.min(lowest, widget.y + widget.yoffset);
+            } else {
+                hidden++;
+            }
+        }
+
+        if (hidden > 0 && lowest < Settings.HEIGHT)
+            FontHelper.renderSmartText(sb, FontHelper.cardDescFont_N, String.format(RemotePlayerWidget.TEXT[2], hidden), 16.0F * Settings.scale, lowest - 8.0F * Settings.scale, Color.LIGHT_GRAY);
+
+        NetStatsOverlay.render(sb);
 
-        if (TogetherManager.gameMode == TogetherManager.mode.Versus && TogetherManager.players.size() > 6)
-            FontHelper.renderSmartText(sb, FontHelper.cardDescFont_N, RichPresencePatch.ordinal(TogetherManager.getCurrentUser().ranking+1) + " of " + TogetherManager.players.size(), 16.0F * Settings.scale, TopPanelPlayerPanels.playerWidgets.get(TopPanelPlayerPanels.playerWidgets.size()-1).y + 100.0F * Settings.scale, Color.WHITE);
+        if (TogetherManager.gameMode == TogetherManager.mode.Versus && TogetherManager.players.size() > 6 && WidgetRanking.top() != null)
+            FontHelper.renderSmartText(sb, FontHelper.cardDescFont_N, String.format(RemotePlayerWidget.TEXT[3], RichPresencePatch.ordinal(TogetherManager.getCurrentUser().ranking+1), TogetherManager.players.size()), 16.0F * Settings.scale, WidgetRanking.top().y + 100.0F * Settings.scale, Color.WHITE);
     }
 }
@@ -0,0 +1,86 @@
+package chronoMods.ui.hud;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The player widgets best first, kept in order as scores change. A new score moves that one widget with a binary search,
+// and only the widgets between its old and new place are given a new rank.
+public class WidgetRanking {
+
+    private static ArrayList<RemotePlayerWidget> order = new ArrayList();
+
+    // Ranks everyone from scratch, for when the widgets are made
+    public static void rebuild(List<RemotePlayerWidget> widgets) {
+        order.clear();
+        for (RemotePlayerWidget widget : widgets) {
+            widget.rankScore = widget.score();
+            order.add(widget);
+        }
+
+        // Stable, so ties stay in the order the widgets were added
+        Collections.sort(order, (a, b) -> Long.compare(b.rankScore, a.rankScore));
+
+        for (int i = 0; i < order.size(); i++)
+            order.get(i).setRank(i);
+    }
+
+    // The widget's score may have changed, so move it to its new place.
+    // Widgets made after the last rebuild, like a late joiner's, aren't ranked yet and are added here.
+    public static void update(RemotePlayerWidget widget) {
+        if (widget == null) { return; }
+
+        int from = find(widget);
+        long score = widget.score();
+        if (from >= 0 && score == widget.rankScore) { return; }
+
+        widget.rankScore = score;
+        if (from >= 0)
+            order.remove(from);
+
+        // Behind everyone already on the same score, they got there first
+        int lo = 0, hi = order.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (order.get(mid).rankScore >= score)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        order.add(lo, widget);
+
+        // Everyone below a new widget moves down one
+        if (from < 0)
+            reassign(lo, order.size() - 1);
+        else
+            reassign(Math.min(from, lo), Math.max(from, lo));
+    }
+
+    public static void remove(RemotePlayerWidget widget) {
+        if (widget == null) { return; }
+
+        int from = find(widget);
+        if (from < 0) { return; }
+
+        order.remove(from);
+        reassign(from, order.size() - 1);
+    }
+
+    // The widget in first place, or null
+    public static RemotePlayerWidget top() {
+        return order.isEmpty() ? null : order.get(0);
+    }
+
+    // A widget's rank is its index here, so that's checked first
+    private static int find(RemotePlayerWidget widget) {
+        if (widget.rank >= 0 && widget.rank < order.size() && order.get(widget.rank) == widget)
+            return widget.rank;
+        return order.indexOf(widget);
+    }
+
+    private static void reassign(int from, int to) {
+        for (int i = from; i <= to; i++)
+            if (order.get(i).rank != i)
+                order.get(i).setRank(i);
+    }
+}
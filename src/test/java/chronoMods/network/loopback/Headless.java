@@ -0,0 +1,225 @@
+package chronoMods.network.loopback;
+
+import chronoMods.TogetherManager;
+import chronoMods.coop.infusions.Infusion;
+import chronoMods.coop.infusions.InfusionSet;
+import chronoMods.coop.infusions.LinkedInfusions;
+import chronoMods.ui.lobby.NewGameScreen;
+import chronoMods.ui.lobby.ToggleWidget;
+import chronoMods.ui.mainMenu.NewMenuButtons;
+import com.badlogic.gdx.graphics.Texture;
+import com.evacipated.cardcrawl.modthespire.lib.SpireField;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.cards.CardGroup;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import com.megacrit.cardcrawl.characters.Ironclad;
+import com.megacrit.cardcrawl.core.CardCrawlGame;
+import com.megacrit.cardcrawl.helpers.CardLibrary;
+import com.megacrit.cardcrawl.localization.LocalizedStrings;
+import com.megacrit.cardcrawl.monsters.AbstractMonster;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Just enough of the game for the network and HUD code to run without a window, a GL context or the game's files,
+// for the tests and benchmarks. Localized strings all come back blank, and anything the game would build with
+// textures is made without running its constructor. Lives with the tests so it never ships in the mod, the benchmarks
+// get it from the tests jar.
+public class Headless {
+
+	// Enough lines for any TEXT array the mod indexes into
+	private static final int BLANK_LINES = 128;
+
+	private static Unsafe unsafe;
+	private static boolean started = false;
+
+	public static void start() {
+		if (started) { return; }
+		started = true;
+
+		// Every lookup in every string table finds a blank entry, as if the language file had every key and no text
+		CardCrawlGame.languagePack = allocate(LocalizedStrings.class);
+		for (Field field : LocalizedStrings.class.getDeclaredFields()) {
+			if (!Map.class.isAssignableFrom(field.getType()) || !(field.getGenericType() instanceof ParameterizedType)) { continue; }
+
+			Type value = ((ParameterizedType)field.getGenericType()).getActualTypeArguments()[1];
+			if (value instanceof Class)
+				set(field, CardCrawlGame.languagePack, new BlankStrings((Class)value));
+		}
+
+		// ModTheSpire wires SpireFields to the fields it patches in, here the infusion lives on Card instead
+		for (Field field : SpireField.class.getDeclaredFields()) {
+			if (field.getType() != Field.class) { continue; }
+			try {
+				set(field, Infusion.infusionField.infusion, Card.class.getDeclaredField("infusion"));
+			} catch (NoSuchFieldException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		// Bingo checks the lobby's blackout rule and marks cards with a texture it never draws here
+		NewMenuButtons.newGameScreen = allocate(NewGameScreen.class);
+		NewMenuButtons.newGameScreen.blackoutToggle = allocate(ToggleWidget.class);
+		TogetherManager.bingoMark = texture();
+	}
+
+	// A card with no art, which is all deck tracking and the tiny card lists need
+	public static class Card extends AbstractCard {
+		public Infusion infusion;
+
+		// Never run, AbstractCard's constructor loads the card's image. See card().
+		private Card() {
+			super(null, null, null, 0, null, null, null, null, null);
+		}
+
+		public void upgrade() {
+			timesUpgraded++;
+			upgraded = true;
+		}
+
+		public void use(AbstractPlayer p, AbstractMonster m) {}
+
+		public AbstractCard makeCopy() {
+			return card(cardID, color, rarity, type);
+		}
+	}
+
+	public static Card card(String cardID, AbstractCard.CardColor color, AbstractCard.CardRarity rarity, AbstractCard.CardType type) {
+		Card card = allocate(Card.class);
+		card.cardID = cardID;
+		card.name = cardID;
+		card.color = color;
+		card.rarity = rarity;
+		card.type = type;
+		card.target = AbstractCard.CardTarget.NONE;
+		card.tags = new ArrayList();
+		card.keywords = new ArrayList();
+		return card;
+	}
+
+	public static Card card(String cardID) {
+		return card(cardID, AbstractCard.CardColor.RED, AbstractCard.CardRarity.COMMON, AbstractCard.CardType.ATTACK);
+	}
+
+	public static Infusion infusion(String setID, int indexID) {
+		Infusion infusion = allocate(Infusion.class);
+		infusion.setID = setID;
+		infusion.indexID = indexID;
+		return infusion;
+	}
+
+	// Fills CardLibrary the way loading the game and its mods would, so CardLibrary.getCopy and CardDictionary.build() work.
+	// Madness is always there, it's what the library hands out for IDs it doesn't know.
+	public static void library(Collection<String> cardIDs) {
+		CardLibrary.cards.clear();
+		for (String cardID : cardIDs)
+			CardLibrary.cards.put(cardID, card(cardID));
+		if (!CardLibrary.cards.containsKey("Madness"))
+			CardLibrary.cards.put("Madness", card("Madness", AbstractCard.CardColor.COLORLESS, AbstractCard.CardRarity.UNCOMMON, AbstractCard.CardType.SKILL));
+	}
+
+	// Registers empty infusion sets under a character, as LinkedInfusions.setupInfusions would
+	public static void infusionSets(AbstractPlayer.PlayerClass character, String... setIDs) {
+		ArrayList<InfusionSet> sets = new ArrayList();
+		for (String setID : setIDs) {
+			InfusionSet set = allocate(InfusionSet.class);
+			set.setID = setID;
+			set.infusions = new ArrayList();
+			sets.add(set);
+		}
+		LinkedInfusions.characterInfusionMasterList.put(character, sets);
+	}
+
+	// The local player with just the fields the network code reads
+	public static AbstractPlayer player() {
+		AbstractPlayer player = allocate(Ironclad.class);
+		player.chosenClass = AbstractPlayer.PlayerClass.IRONCLAD;
+		player.masterDeck = new CardGroup(CardGroup.CardGroupType.MASTER_DECK);
+		player.relics = new ArrayList();
+		player.blights = new ArrayList();
+		player.potions = new ArrayList();
+		player.maxHealth = 80;
+		player.currentHealth = 80;
+		player.gold = 99;
+		return player;
+	}
+
+	// Never bound, so only good for comparing against null
+	public static Texture texture() {
+		return allocate(Texture.class);
+	}
+
+	// An instance made without running any constructor
+	public static <T> T allocate(Class<T> type) {
+		try {
+			return (T)unsafe().allocateInstance(type);
+		} catch (InstantiationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class BlankStrings extends HashMap<String, Object> {
+		private final Class type;
+
+		BlankStrings(Class type) {
+			this.type = type;
+		}
+
+		public Object get(Object key) {
+			Object strings = super.get(key);
+			if (strings == null) {
+				strings = blank(type);
+				put((String)key, strings);
+			}
+			return strings;
+		}
+	}
+
+	private static Object blank(Class type) {
+		Object strings = allocate(type);
+		for (Field field : type.getFields()) {
+			if (Modifier.isStatic(field.getModifiers())) { continue; }
+
+			if (field.getType() == String.class) {
+				set(field, strings, "");
+			} else if (field.getType() == String[].class) {
+				String[] text = new String[BLANK_LINES];
+				Arrays.fill(text, "");
+				set(field, strings, text);
+			} else if (Map.class.isAssignableFrom(field.getType())) {
+				set(field, strings, new HashMap());
+			}
+		}
+		return strings;
+	}
+
+	// Goes through Unsafe so final and private fields can be filled in too
+	private static void set(Field field, Object target, Object value) {
+		Unsafe unsafe = unsafe();
+		if (Modifier.isStatic(field.getModifiers()))
+			unsafe.putObject(unsafe.staticFieldBase(field), unsafe.staticFieldOffset(field), value);
+		else
+			unsafe.putObject(target, unsafe.objectFieldOffset(field), value);
+	}
+
+	private static Unsafe unsafe() {
+		if (unsafe == null) {
+			try {
+				Field field = Unsafe.class.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				unsafe = (Unsafe)field.get(null);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return unsafe;
+	}
+}
@@ -0,0 +1,485 @@
+package chronoMods.network.loopback;
+
+import chronoMods.TogetherManager;
+import chronoMods.network.CardDataBuffer;
+import chronoMods.network.CardDictionary;
+import chronoMods.network.DeckSync;
+import chronoMods.network.NetworkHelper;
+import chronoMods.network.PacketBatcher;
+import chronoMods.network.PlayerState;
+import chronoMods.network.RemotePlayer;
+import chronoMods.network.codec.DeckInfoCodec;
+import chronoMods.network.codec.DeckSnapshotCodec;
+import chronoMods.network.codec.PacketCodec;
+import chronoMods.network.codec.PlayerStateCodec;
+import chronoMods.network.codec.VersionCodec;
+import com.megacrit.cardcrawl.cards.AbstractCard;
+import com.megacrit.cardcrawl.cards.CardGroup;
+import com.megacrit.cardcrawl.characters.AbstractPlayer;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// Runs whole lobbies in one JVM over LoopbackIntegration, on top of Headless. The local user goes through NetworkHelper
+// exactly as in game, the peers are scripted: they send real encoded messages and record what reaches them.
+public class LoopbackLobbyTest {
+
+	private static final List<String> CARDS = Arrays.asList("Strike_R", "Defend_R", "Bash", "Anger", "Inflame", "Offering");
+
+	private LoopbackIntegration integration;
+
+	// What each peer has been sent, by message type, with batches already unpacked
+	private HashMap<LoopbackPlayer, List<ByteBuffer>> received = new HashMap();
+
+	@BeforeClass
+	public static void startGame() {
+		Headless.start();
+		Headless.library(CARDS);
+		Headless.infusionSets(AbstractPlayer.PlayerClass.IRONCLAD, "Ironclad");
+		CardDictionary.build();
+	}
+
+	private void join(TogetherManager.mode mode, int size) {
+		TogetherManager.gameMode = mode;
+
+		integration = new LoopbackIntegration();
+		integration.manualClock = true;
+		integration.peerCount = size - 1;
+
+		TogetherManager.currentUser = integration.makeCurrentUser();
+		integration.createLobby(mode);
+
+		for (LoopbackPlayer peer : peers())
+			listen(peer);
+	}
+
+	@After
+	public void leave() {
+		NetworkHelper.outgoing.clear();
+		NetworkHelper.network.discard();
+		if (integration != null)
+			integration.dispose();
+
+		TogetherManager.currentLobby = null;
+		TogetherManager.currentUser = null;
+		TogetherManager.players = new CopyOnWriteArrayList();
+		TogetherManager.gameMode = TogetherManager.mode.Normal;
+	}
+
+	@Test
+	public void coopLobbyJoins() {
+		join(TogetherManager.mode.Coop, 6);
+		assertJoined(6);
+		assertEquals(6, integration.lobby.getCapacity());
+	}
+
+	@Test
+	public void bingoLobbyJoins() {
+		join(TogetherManager.mode.Bingo, 200);
+		assertJoined(200);
+		assertEquals(200, integration.lobby.getCapacity());
+	}
+
+	@Test
+	public void lateJoinerIsFound() {
+		join(TogetherManager.mode.Bingo, 50);
+		LoopbackPlayer late = integration.makePeer();
+		integration.lobby.players.add(late);
+		listen(late);
+
+		assertSame(late, integration.lobby.registry.get(late.getAccountID()));
+		assertEquals(50, integration.lobby.registry.indexOf(late));
+
+		sendState(late, 42, 70, 99, 7);
+		settle();
+		assertEquals(42, late.hp);
+		assertEquals(7, late.floor);
+	}
+
+	@Test
+	public void coopStateReplicates() {
+		join(TogetherManager.mode.Coop, 6);
+		assertStateReplicates();
+	}
+
+	@Test
+	public void bingoStateReplicates() {
+		join(TogetherManager.mode.Bingo, 200);
+		assertStateReplicates();
+	}
+
+	@Test
+	public void coopDeckReplicates() {
+		join(TogetherManager.mode.Coop, 6);
+		shareDictionary();
+		assertDeckReplicates();
+	}
+
+	@Test
+	public void bingoDeckReplicates() {
+		join(TogetherManager.mode.Bingo, 200);
+		shareDictionary();
+		assertDeckReplicates();
+	}
+
+	@Test
+	public void coopPeerDecksReplicate() {
+		join(TogetherManager.mode.Coop, 6);
+		shareDictionary();
+		assertPeerDecksReplicate();
+	}
+
+	@Test
+	public void bingoPeerDecksReplicate() {
+		join(TogetherManager.mode.Bingo, 200);
+		shareDictionary();
+		assertPeerDecksReplicate();
+	}
+
+	// One peer on an older dictionary means the cards go out as JSON, which must arrive just the same
+	@Test
+	public void deckReplicatesWithoutSharedDictionary() {
+		join(TogetherManager.mode.Coop, 6);
+		shareDictionary();
+		peers().get(2).cardDictionaryHash = 0;
+		CardDictionary.invalidate();
+		assertDeckReplicates();
+	}
+
+	// A deck hash that doesn't match our copy asks that player, and only that player, for their whole deck
+	@Test
+	public void deckHashMismatchRequestsSnapshot() {
+		join(TogetherManager.mode.Bingo, 200);
+		List<LoopbackPlayer> peers = peers();
+		LoopbackPlayer behind = peers.get(17);
+
+		PlayerStateCodec codec = new PlayerStateCodec();
+		PlayerStateCodec.Message message = new PlayerStateCodec.Message();
+		message.mask = PlayerState.DECK;
+		message.values[PlayerState.CARDS] = 12;
+		message.values[PlayerState.UPGRADES] = 1;
+		message.values[PlayerState.DECK_HASH_LO] = 0x1234;
+		message.values[PlayerState.DECK_HASH_HI] = 0;
+		behind.send(encode(codec, message));
+
+		// Everyone else reports the empty deck we already have for them
+		for (LoopbackPlayer peer : peers) {
+			if (peer == behind) { continue; }
+			message.values[PlayerState.DECK_HASH_LO] = 0;
+			peer.send(encode(codec, message));
+		}
+
+		settle();
+
+		assertEquals(12, behind.cards);
+		assertEquals(0x1234L, behind.reportedDeckHash);
+		for (LoopbackPlayer peer : peers)
+			assertEquals(peer.userName, peer == behind ? 1 : 0, count(peer, NetworkHelper.dataType.DeckRequest));
+	}
+
+	// Whether the dictionary is shared is cached, so a Version packet or someone leaving has to be noticed
+	@Test
+	public void sharedDictionaryFollowsVersionAndLeave() {
+		join(TogetherManager.mode.Bingo, 200);
+		shareDictionary();
+		assertTrue(CardDictionary.isShared());
+
+		LoopbackPlayer old = peers().get(120);
+		VersionCodec.Message version = new VersionCodec.Message();
+		version.cardDictionaryHash = CardDictionary.getHash() + 1;
+		old.send(encode(new VersionCodec(), version));
+		settle();
+		assertFalse(CardDictionary.isShared());
+
+		NetworkHelper.removePlayer(old);
+		assertTrue(CardDictionary.isShared());
+	}
+
+	// A snapshot that can't be rebuilt to its hash isn't asked for again until their deck changes
+	@Test
+	public void unrebuildableSnapshotIsNotRequestedAgain() {
+		join(TogetherManager.mode.Coop, 6);
+		LoopbackPlayer behind = peers().get(3);
+
+		long requestMillis = DeckSync.requestMillis;
+		DeckSync.requestMillis = 0L;
+		try {
+			reportDeckHash(behind, 0x1234);
+			settle();
+			assertEquals(1, count(behind, NetworkHelper.dataType.DeckRequest));
+
+			// Their reply has a card we don't know, so our copy still doesn't match
+			DeckSnapshotCodec.Message snapshot = new DeckSnapshotCodec.Message();
+			snapshot.hash = 0x1234;
+			snapshot.cards.add(card("Unknown_Modded_Card", 0, 0, "", 0));
+			behind.send(encode(new DeckSnapshotCodec(), snapshot));
+			settle();
+			assertFalse(behind.deckHash == 0x1234);
+
+			reportDeckHash(behind, 0x1234);
+			settle();
+			assertEquals(1, count(behind, NetworkHelper.dataType.DeckRequest));
+
+			reportDeckHash(behind, 0x5678);
+			settle();
+			assertEquals(2, count(behind, NetworkHelper.dataType.DeckRequest));
+		} finally {
+			DeckSync.requestMillis = requestMillis;
+		}
+	}
+
+	private void reportDeckHash(LoopbackPlayer peer, int hash) {
+		PlayerStateCodec.Message message = new PlayerStateCodec.Message();
+		message.mask = PlayerState.DECK_HASH;
+		message.values[PlayerState.DECK_HASH_LO] = hash;
+		message.values[PlayerState.DECK_HASH_HI] = 0;
+		peer.send(encode(new PlayerStateCodec(), message));
+	}
+
+	private void assertJoined(int size) {
+		assertEquals(size, TogetherManager.players.size());
+		assertSame(integration.lobby.getLobbyMembers(), TogetherManager.players);
+		assertSame(integration, NetworkHelper.service());
+		assertTrue(integration.lobby.isOwner());
+
+		for (int i = 0; i < TogetherManager.players.size(); i++) {
+			RemotePlayer player = TogetherManager.players.get(i);
+			assertSame(player, integration.lobby.registry.get(player.getAccountID()));
+			assertEquals(i, integration.lobby.registry.indexOf(player));
+		}
+	}
+
+	private void assertStateReplicates() {
+		List<LoopbackPlayer> peers = peers();
+		for (int i = 0; i < peers.size(); i++)
+			sendState(peers.get(i), 10 + i % 60, 80, 100 + i, 1 + i % 15);
+		settle();
+
+		for (int i = 0; i < peers.size(); i++) {
+			LoopbackPlayer peer = peers.get(i);
+			assertEquals(peer.userName, 10 + i % 60, peer.hp);
+			assertEquals(peer.userName, 80, peer.maxHp);
+			assertEquals(peer.userName, 100 + i, peer.gold);
+			assertEquals(peer.userName, 1 + i % 15, peer.floor);
+		}
+
+		// A delta only carries what changed, the rest stays as it was
+		LoopbackPlayer hurt = peers.get(peers.size() - 1);
+		PlayerStateCodec.Message message = new PlayerStateCodec.Message();
+		message.mask = PlayerState.bit(PlayerState.HP);
+		message.values[PlayerState.HP] = 3;
+		hurt.send(encode(new PlayerStateCodec(), message));
+		settle();
+
+		assertEquals(3, hurt.hp);
+		assertEquals(80, hurt.maxHp);
+		assertEquals(100 + peers.size() - 1, hurt.gold);
+	}
+
+	private void assertDeckReplicates() {
+		ArrayList<CardDataBuffer> deck = new ArrayList();
+		deck.add(card("Strike_R", 0, 0, "", 0));
+		deck.add(card("Strike_R", 1, 0, "", 0));
+		deck.add(card("Bash", 1, 0, "Ironclad", 3));
+		deck.add(card("Offering", 0, -2, "", 0));
+		deck.add(card("MergeCard", 0, 0, "", 0));
+		deck.get(4).mergeCardID = "Anger;Inflame";
+		// Not in anyone's dictionary, so it goes as JSON either way
+		deck.add(card("Some:ModdedCard", 2, 5, "", 0));
+
+		ArrayList<RemotePlayer> others = new ArrayList();
+		for (LoopbackPlayer peer : peers())
+			others.add(peer);
+
+		DeckInfoCodec codec = new DeckInfoCodec();
+		DeckInfoCodec.Message message = new DeckInfoCodec.Message();
+		for (CardDataBuffer card : deck) {
+			message.card = card;
+			integration.sendTo(others, encode(codec, message));
+		}
+		settle();
+
+		for (LoopbackPlayer peer : peers()) {
+			ArrayList<String> replica = new ArrayList();
+			for (ByteBuffer data : messages(peer, NetworkHelper.dataType.DeckInfo)) {
+				DeckInfoCodec.Message copy = new DeckInfoCodec.Message();
+				((Buffer)data).position(PacketCodec.HEADER_SIZE);
+				codec.decode(data, copy);
+				assertFalse(copy.update);
+				assertFalse(copy.remove);
+				replica.add(describe(copy.card));
+			}
+
+			ArrayList<String> expected = new ArrayList();
+			for (CardDataBuffer card : deck)
+				expected.add(describe(card));
+			assertEquals(peer.userName, expected, replica);
+		}
+	}
+
+	// Cards each peer adds, upgrades and removes end up in our copy of their deck, which then hashes the same as theirs
+	private void assertPeerDecksReplicate() {
+		DeckInfoCodec codec = new DeckInfoCodec();
+		List<LoopbackPlayer> peers = peers();
+		for (LoopbackPlayer peer : peers) {
+			peer.send(deckInfo(codec, card("Strike_R", 0, 0, "", 0), false, false));
+			peer.send(deckInfo(codec, card("Strike_R", 0, 0, "", 0), false, false));
+			peer.send(deckInfo(codec, card("Offering", 0, 0, "", 0), false, false));
+			peer.send(deckInfo(codec, card("Strike_R", 0, 0, "", 0), true, false));
+			peer.send(deckInfo(codec, card("Offering", 0, 0, "", 0), false, true));
+		}
+		settle();
+
+		CardGroup theirs = new CardGroup(CardGroup.CardGroupType.MASTER_DECK);
+		AbstractCard upgraded = Headless.card("Strike_R");
+		upgraded.upgrade();
+		theirs.addToBottom(upgraded);
+		theirs.addToBottom(Headless.card("Strike_R"));
+		long hash = DeckSync.deckHash(theirs);
+
+		for (LoopbackPlayer peer : peers) {
+			assertEquals(peer.userName, Arrays.asList("Strike_R+1", "Strike_R+0"), describe(peer.deck));
+			assertEquals(peer.userName, hash, peer.deckHash);
+		}
+
+		// Their State agrees with our copy, so nobody is asked for a snapshot
+		PlayerStateCodec.Message message = new PlayerStateCodec.Message();
+		message.mask = PlayerState.DECK;
+		message.values[PlayerState.CARDS] = 2;
+		message.values[PlayerState.UPGRADES] = 1;
+		message.values[PlayerState.DECK_HASH_LO] = (int)hash;
+		message.values[PlayerState.DECK_HASH_HI] = (int)(hash >>> 32);
+		for (LoopbackPlayer peer : peers)
+			peer.send(encode(new PlayerStateCodec(), message));
+		settle();
+
+		for (LoopbackPlayer peer : peers) {
+			assertEquals(hash, peer.reportedDeckHash);
+			assertEquals(peer.userName, 0, count(peer, NetworkHelper.dataType.DeckRequest));
+		}
+	}
+
+	private static ByteBuffer deckInfo(DeckInfoCodec codec, CardDataBuffer card, boolean update, boolean remove) {
+		DeckInfoCodec.Message message = new DeckInfoCodec.Message();
+		message.card = card;
+		message.update = update;
+		message.remove = remove;
+		return encode(codec, message);
+	}
+
+	private static List<String> describe(CardGroup deck) {
+		ArrayList<String> cards = new ArrayList();
+		for (AbstractCard card : deck.group)
+			cards.add(card.cardID + "+" + card.timesUpgraded);
+		return cards;
+	}
+
+	private void shareDictionary() {
+		for (LoopbackPlayer peer : peers())
+			peer.cardDictionaryHash = CardDictionary.getHash();
+		CardDictionary.invalidate();
+	}
+
+	private void sendState(LoopbackPlayer peer, int hp, int maxHp, int gold, int floor) {
+		PlayerStateCodec.Message message = new PlayerStateCodec.Message();
+		message.mask = PlayerState.HEALTH | PlayerState.bit(PlayerState.GOLD) | PlayerState.bit(PlayerState.FLOOR);
+		message.values[PlayerState.HP] = hp;
+		message.values[PlayerState.MAX_HP] = maxHp;
+		message.values[PlayerState.GOLD] = gold;
+		message.values[PlayerState.FLOOR] = floor;
+		peer.send(encode(new PlayerStateCodec(), message));
+	}
+
+	// Pumps both directions until nothing is left anywhere
+	private void settle() {
+		for (int i = 0; i < 1000; i++) {
+			NetworkHelper.flush();
+			NetworkHelper.update();
+
+			if (integration.packetsInFlight() == 0 && NetworkHelper.network.incoming.isEmpty() && NetworkHelper.outgoing.isEmpty())
+				return;
+		}
+		throw new AssertionError("Lobby never settled, " + integration.packetsInFlight() + " packets still in flight");
+	}
+
+	private List<LoopbackPlayer> peers() {
+		ArrayList<LoopbackPlayer> peers = new ArrayList();
+		for (RemotePlayer player : integration.lobby.players)
+			if (!player.isUser(TogetherManager.currentUser))
+				peers.add((LoopbackPlayer)player);
+		return peers;
+	}
+
+	private void listen(LoopbackPlayer peer) {
+		ArrayList<ByteBuffer> messages = new ArrayList();
+		received.put(peer, messages);
+		peer.handler = (sender, data) -> unpack(data, messages);
+	}
+
+	private static void unpack(ByteBuffer data, List<ByteBuffer> messages) {
+		if (data.getInt(0) != NetworkHelper.dataType.Batch.ordinal()) {
+			messages.add(data.duplicate());
+			return;
+		}
+
+		ByteBuffer batch = data.duplicate();
+		((Buffer)batch).position(PacketBatcher.HEADER_SIZE);
+		while (batch.remaining() >= PacketBatcher.LENGTH_SIZE) {
+			int length = batch.getShort() & 0xFFFF;
+			ByteBuffer message = batch.slice();
+			((Buffer)message).limit(length);
+			((Buffer)batch).position(batch.position() + length);
+			messages.add(message);
+		}
+	}
+
+	private List<ByteBuffer> messages(LoopbackPlayer peer, NetworkHelper.dataType type) {
+		ArrayList<ByteBuffer> matching = new ArrayList();
+		for (ByteBuffer data : received.get(peer))
+			if (data.getInt(0) == type.ordinal())
+				matching.add(data.duplicate());
+		return matching;
+	}
+
+	private int count(LoopbackPlayer peer, NetworkHelper.dataType type) {
+		return messages(peer, type).size();
+	}
+
+	private static <T> ByteBuffer encode(PacketCodec<T> codec, T message) {
+		ByteBuffer data = ByteBuffer.allocate(PacketCodec.HEADER_SIZE + codec.size(message));
+		data.putInt(codec.type.ordinal());
+		codec.encode(message, data);
+		assertFalse("size() disagrees with encode()", data.hasRemaining());
+		((Buffer)data).rewind();
+		return data;
+	}
+
+	private static CardDataBuffer card(String cardID, int timesUpgraded, int misc, String iSet, int iIndex) {
+		CardDataBuffer card = new CardDataBuffer();
+		card.cardID = cardID;
+		card.timesUpgraded = timesUpgraded;
+		card.misc = misc;
+		card.iSet = iSet;
+		card.iIndex = iIndex;
+		return card;
+	}
+
+	private static String describe(CardDataBuffer card) {
+		assertNotNull(card);
+		return card.cardID + "+" + card.timesUpgraded + " misc " + card.misc + " set " + card.iSet + ":" + card.iIndex + " merged " + card.mergeCardID;
+	}
+}